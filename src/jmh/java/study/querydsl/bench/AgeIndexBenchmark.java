@@ -0,0 +1,63 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.dto.TeamAgeStatistics;
+import study.querydsl.repository.MemberStatisticsRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 나이 범위 count / 전체 집계 / 팀별 집계를 MemberAgeIndex vs H2 로 비교
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AgeIndexBenchmark {
+
+    @Param({"100000", "1000000"})
+    int members;
+
+    @Param({"false", "true"})
+    boolean ageIndex;
+
+    private BenchmarkContext context;
+    private MemberStatisticsRepository statisticsRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members, "querydsl.age-index.enabled=" + ageIndex);
+        statisticsRepository = context.getBean(MemberStatisticsRepository.class);
+        // 시드는 JDBC 로 들어가므로 첫 조회에서 인덱스를 만든다
+        statisticsRepository.ageStatistics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long countByAge() {
+        return statisticsRepository.countByAge(20, 40);
+    }
+
+    @Benchmark
+    public AgeStatistics ageStatistics() {
+        return statisticsRepository.ageStatistics();
+    }
+
+    @Benchmark
+    public List<TeamAgeStatistics> ageStatisticsByTeam() {
+        return statisticsRepository.ageStatisticsByTeam();
+    }
+}
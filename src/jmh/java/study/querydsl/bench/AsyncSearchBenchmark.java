@@ -0,0 +1,92 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.AsyncMemberSearchService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 호출자 1000 개가 동시에 searchPageComplex 를 부를 때의 처리량.
+ * blocking 은 요청 스레드 1000 개가 커넥션을 기다리며 막히고, async 는 호출 스레드 하나가 future 만 모은다.
+ * 가상 스레드는 JDK 21 이상에서 실행할 때만 켠다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AsyncSearchBenchmark {
+
+    private static final int CALLERS = 1000;
+
+    @Param({"100000"})
+    int members;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private AsyncMemberSearchService asyncService;
+    private ExecutorService callers;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members,
+                "querydsl.count-cache.enabled=false",
+                "spring.threads.virtual.enabled=" + (Runtime.version().feature() >= 21));
+        memberRepository = context.getBean(MemberRepository.class);
+        asyncService = context.getBean(AsyncMemberSearchService.class);
+        callers = Executors.newFixedThreadPool(CALLERS);
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        pageRequest = PageRequest.of(5, 20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        callers.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLERS)
+    public void blocking() throws Exception {
+        List<Future<Page<MemberTeamDto>>> results = new ArrayList<>(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> memberRepository.searchPageComplex(condition, pageRequest)));
+        }
+        for (Future<Page<MemberTeamDto>> result : results) {
+            result.get();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLERS)
+    public void async() {
+        List<CompletableFuture<Page<MemberTeamDto>>> results = new ArrayList<>(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(asyncService.searchPageComplex(condition, pageRequest));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.bench;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.TeamStatsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 인메모리 H2 위에 애플리케이션 컨텍스트를 띄우고 member / team 을 채운다.
+ * team 은 TEAMS 개, member 는 age = id % 100, team = id % TEAMS + 1 로 고르게 분포한다.
+ */
+public final class BenchmarkContext implements AutoCloseable {
+
+    public static final int TEAMS = 100;
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static BenchmarkContext start(int members, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.properties.hibernate.show_sql=false",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "spring.jpa.properties.hibernate.use_sql_comments=false",
+                "logging.level.root=warn",
+                "logging.level.org.hibernate.sql=warn",
+                "logging.level.org.hibernate.type=warn"));
+        all.addAll(List.of(properties));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .properties(all.toArray(String[]::new))
+                .run();
+        BenchmarkContext benchmarkContext = new BenchmarkContext(context);
+        benchmarkContext.seed(members);
+        return benchmarkContext;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed(int members) {
+        JdbcTemplate jdbc = getBean(JdbcTemplate.class);
+        jdbc.update("insert into team (team_id, name) select x, concat('team', x) from system_range(1, ?)", TEAMS);
+        jdbc.update("insert into member (id, username, age, team_id) " +
+                "select x, concat('member', x), mod(x, 100), mod(x, ?) + 1 from system_range(1, ?)", TEAMS, members);
+        // JPA 로 추가 저장하는 벤치마크가 시드 id 와 겹치지 않도록
+        jdbc.execute("alter sequence team_seq restart with " + (TEAMS + 1000));
+        jdbc.execute("alter sequence member_seq restart with " + (members + 1000L));
+        // JDBC 로 넣은 시드에는 엔티티 이벤트가 없으므로 team_stats 를 직접 만든다
+        getBean(TeamStatsRepository.class).rebuild();
+        jdbc.execute("analyze");
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
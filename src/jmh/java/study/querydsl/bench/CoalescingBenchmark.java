@@ -0,0 +1,67 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.CoalescingMemberSearchService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 32 스레드가 같은 조건/페이지로 동시에 검색할 때의 처리량.
+ * 카운트 캐시의 영향을 빼기 위해 count-cache 는 끈다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class CoalescingBenchmark {
+
+    @Param({"100000"})
+    int members;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private CoalescingMemberSearchService coalescingService;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members, "querydsl.count-cache.enabled=false");
+        memberRepository = context.getBean(MemberRepository.class);
+        coalescingService = context.getBean(CoalescingMemberSearchService.class);
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        pageRequest = PageRequest.of(5, 20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> repository() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> coalesced() {
+        return coalescingService.searchPageComplex(condition, pageRequest);
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.PagingStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * username 정렬 페이징을 offset 별로 OFFSET vs DEFERRED_JOIN 비교
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeferredJoinBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000000"})
+    int members;
+
+    @Param({"0", "1000", "100000", "500000"})
+    int offset;
+
+    @Param({"OFFSET", "DEFERRED_JOIN"})
+    PagingStrategy strategy;
+
+    private BenchmarkContext context;
+    private MemberTestRepository memberTestRepository;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+        condition = new MemberSearchCondition();
+        pageRequest = PageRequest.of(offset / PAGE_SIZE, PAGE_SIZE, Sort.by("username"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPage() {
+        return memberTestRepository.searchPage(condition, pageRequest, strategy);
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.bench;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.service.IngestResult;
+import study.querydsl.service.MemberBulkIngestService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 회원 한 건당 저장 시간: MemberJpaRepository.save 를 건마다 커밋 vs MemberBulkIngestService
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngestBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private BenchmarkContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberBulkIngestService ingestService;
+    private TransactionTemplate transactionTemplate;
+    private Team team;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(0);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        ingestService = context.getBean(MemberBulkIngestService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        EntityManager em = context.getBean(EntityManager.class);
+        team = transactionTemplate.execute(status -> em.find(Team.class, 1L));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void perEntitySave() {
+        members().forEach(member -> transactionTemplate.executeWithoutResult(status -> memberJpaRepository.save(member)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public IngestResult bulkIngest() {
+        return ingestService.ingest(members());
+    }
+
+    private Stream<Member> members() {
+        return IntStream.range(0, ROWS).mapToObj(i -> {
+            Member member = new Member("ingest" + i, i % 100);
+            member.setTeam(team);
+            return member;
+        });
+    }
+}
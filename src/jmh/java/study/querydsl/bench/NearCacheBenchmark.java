@@ -0,0 +1,67 @@
+package study.querydsl.bench;
+
+import com.querydsl.core.types.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberNearCache;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * findAll(Predicate) / count(Predicate) 의 near-cache vs JPA 지연시간.
+ * 스냅샷 메모리 추정치는 setUp 에서 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NearCacheBenchmark {
+
+    @Param({"1000", "10000"})
+    int members;
+
+    @Param({"false", "true"})
+    boolean nearCache;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private Predicate predicate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members,
+                "querydsl.near-cache.enabled=" + nearCache,
+                "querydsl.near-cache.max-members=" + members);
+        memberRepository = context.getBean(MemberRepository.class);
+        predicate = member.team.name.eq("team7").and(member.age.between(20, 40));
+
+        memberRepository.count(predicate);
+        MemberNearCache cache = context.getBean(MemberNearCache.class);
+        System.out.printf("near-cache size=%d, estimatedBytes=%d%n", cache.size(), cache.estimatedBytes());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Iterable<Member> findAll() {
+        return memberRepository.findAll(predicate);
+    }
+
+    @Benchmark
+    public long count() {
+        return memberRepository.count(predicate);
+    }
+}
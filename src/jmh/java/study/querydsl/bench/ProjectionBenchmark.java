@@ -0,0 +1,93 @@
+package study.querydsl.bench;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.querydsl.core.types.Projections.bean;
+import static com.querydsl.core.types.Projections.constructor;
+import static com.querydsl.core.types.Projections.fields;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * QueryDslBasicTest 의 DTO 프로젝션 방식 비교.
+ * 호출마다 ROWS 건을 읽고 OperationsPerInvocation 으로 나누므로
+ * gc 프로파일러의 gc.alloc.rate.norm 이 곧 행당 할당 바이트다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProjectionBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"10000", "1000000"})
+    int members;
+
+    private BenchmarkContext context;
+    private JPAQueryFactory queryFactory;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<MemberDto> setter() {
+        return queryFactory
+                .select(bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<MemberDto> field() {
+        return queryFactory
+                .select(fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<MemberDto> constructorProjection() {
+        return queryFactory
+                .select(constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<MemberDto> queryProjection() {
+        return queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch();
+    }
+}
@@ -0,0 +1,88 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 조건 조합별 JPQL 캐시 on/off 비교. 16 가지 shape 를 돌아가며 호출한다.
+ * 회원 수를 작게 잡아 DB 시간보다 쿼리 생성 CPU 와 할당(gc.alloc.rate.norm)이 드러나게 한다.
+ * count 캐시는 꺼서 searchPageComplex 의 count 쿼리도 매번 실행한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryShapeCacheBenchmark {
+
+    @Param({"1000"})
+    int members;
+
+    @Param({"false", "true"})
+    boolean shapeCache;
+
+    private BenchmarkContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition[] conditions;
+    private PageRequest pageRequest;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members,
+                "querydsl.query-shape-cache.enabled=" + shapeCache,
+                "querydsl.count-cache.enabled=false");
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+
+        conditions = new MemberSearchCondition[16];
+        for (int shape = 0; shape < conditions.length; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) == 0 ? null : "member" + (shape + 1));
+            condition.setTeamName((shape & 2) == 0 ? null : "team" + (shape + 1));
+            condition.setAgeGoe((shape & 4) == 0 ? null : shape);
+            condition.setAgeLoe((shape & 8) == 0 ? null : shape + 10);
+            conditions[shape] = condition;
+        }
+        pageRequest = PageRequest.of(0, 20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private MemberSearchCondition nextCondition() {
+        return conditions[next++ & 15];
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(nextCondition());
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(nextCondition());
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(nextCondition(), pageRequest);
+    }
+}
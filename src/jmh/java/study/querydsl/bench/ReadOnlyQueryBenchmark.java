@@ -0,0 +1,99 @@
+package study.querydsl.bench;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 관리 엔티티 조회 vs 읽기 전용 조회.
+ * 한 트랜잭션에서 전체 회원을 읽고 flush 까지 수행한다. (flush 시 dirty checking 비용 포함)
+ * gc.alloc.rate.norm 은 행당 할당 바이트, retainedBytesPerRow 는 영속성 컨텍스트가 살아 있는 동안 남아 있는 행당 힙이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReadOnlyQueryBenchmark {
+
+    @Param({"10000", "100000"})
+    int members;
+
+    @Param({"false", "true"})
+    boolean readOnly;
+
+    private BenchmarkContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private EntityManager em;
+    private TransactionTemplate tx;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        em = context.getBean(EntityManager.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytesPerRow;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytesPerRow = 0;
+        }
+    }
+
+    @Benchmark
+    public int loadAndFlush() {
+        return tx.execute(status -> {
+            List<Member> result = load();
+            em.flush();
+            return result.size();
+        });
+    }
+
+    /**
+     * 영속성 컨텍스트를 연 상태로 GC 전후 사용 힙 차이를 잰다. System.gc() 를 포함하므로 이 벤치마크의 시간 값은 의미가 없다.
+     */
+    @Benchmark
+    public int retained(Retained counters) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        return tx.execute(status -> {
+            System.gc();
+            long before = memory.getHeapMemoryUsage().getUsed();
+            List<Member> result = load();
+            System.gc();
+            long after = memory.getHeapMemoryUsage().getUsed();
+            counters.retainedBytesPerRow = Math.max(0, after - before) / Math.max(1, result.size());
+            return result.size();
+        });
+    }
+
+    private List<Member> load() {
+        return readOnly ? memberJpaRepository.findAll_QueryDslReadOnly() : memberJpaRepository.findAll_QueryDsl();
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 조건 N 개를 search 로 하나씩 조회하는 것과 searchAll 로 한 번에 조회하는 것의 비교.
+ * 조건은 username 단건 / teamName + ageGoe 두 shape 를 반씩 섞는다.
+ * 조건별 호출의 왕복 비용이 드러나도록 shape 캐시와 near-cache 는 끈다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchAllBenchmark {
+
+    @Param({"10000"})
+    int members;
+
+    @Param({"10", "100", "500"})
+    int conditionCount;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private List<MemberSearchCondition> conditions;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members,
+                "querydsl.query-shape-cache.enabled=false",
+                "querydsl.near-cache.enabled=false");
+        memberRepository = context.getBean(MemberRepository.class);
+
+        conditions = new ArrayList<>(conditionCount);
+        for (int i = 0; i < conditionCount; i++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            if (i % 2 == 0) {
+                condition.setUsername("member" + (i * 7 % members + 1));
+            } else {
+                condition.setTeamName("team" + (i % 10 + 1));
+                condition.setAgeGoe(95 - i % 5);
+            }
+            conditions.add(condition);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<MemberSearchCondition, List<MemberTeamDto>> loop() {
+        Map<MemberSearchCondition, List<MemberTeamDto>> result = new LinkedHashMap<>();
+        for (MemberSearchCondition condition : conditions) {
+            result.put(condition, memberRepository.search(condition));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<MemberSearchCondition, List<MemberTeamDto>> searchAll() {
+        return memberRepository.searchAll(conditions);
+    }
+}
@@ -0,0 +1,106 @@
+package study.querydsl.bench;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.TeamMembershipService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writers 개 스레드가 회원을 인기 팀(team 1)으로 옮길 때의 처리량.
+ * changeTeam 은 대상 팀의 members 컬렉션을 읽어 들이고, TeamMembershipService 는 member.team_id 만 갱신한다.
+ * team-stats 를 켜면 이동마다 커밋 직전에 인기 팀의 team_stats 행을 갱신하므로 writers 가 그 행의 락을 기다린다.
+ * 이동 경로 자체를 재려면 teamStats=false, 읽기 모델을 유지하는 비용까지 보려면 teamStats=true 로 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TeamMembershipBenchmark {
+
+    private static final int MOVES = 2_000;
+    private static final long POPULAR_TEAM = 1L;
+
+    @Param({"10000"})
+    int members;
+
+    @Param({"1", "2", "4", "8"})
+    int writers;
+
+    @Param({"false", "true"})
+    boolean teamStats;
+
+    private BenchmarkContext context;
+    private EntityManager em;
+    private TransactionTemplate transactionTemplate;
+    private TeamMembershipService teamMembershipService;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members,
+                "querydsl.near-cache.enabled=false",
+                "querydsl.team-stats.enabled=" + teamStats);
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        teamMembershipService = context.getBean(TeamMembershipService.class);
+        executor = Executors.newFixedThreadPool(writers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void changeTeam() throws Exception {
+        run(memberId -> transactionTemplate.executeWithoutResult(status ->
+                em.find(Member.class, memberId).changeTeam(em.find(Team.class, POPULAR_TEAM))));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void targetedMove() throws Exception {
+        run(memberId -> teamMembershipService.moveTo(memberId, POPULAR_TEAM));
+    }
+
+    private void run(MoveTask task) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(writers);
+        for (int writer = 0; writer < writers; writer++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < MOVES / writers; i++) {
+                    long memberId = ThreadLocalRandom.current().nextLong(members) + 1;
+                    task.move(memberId);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @FunctionalInterface
+    private interface MoveTask {
+        void move(long memberId);
+    }
+}
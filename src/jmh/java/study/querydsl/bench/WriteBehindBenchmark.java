@@ -0,0 +1,73 @@
+package study.querydsl.bench;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.service.MemberWriteBehindBuffer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hot 개의 회원에 age 변경을 몰아 넣을 때의 처리량: 건마다 변경 감지 + 커밋 vs write-behind 버퍼.
+ * 버퍼 쪽은 flush-interval 동안 같은 회원의 변경이 합쳐지므로 실제 UPDATE 수는 hot 개 안팎으로 줄어든다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class WriteBehindBenchmark {
+
+    @Param({"10000"})
+    int members;
+
+    @Param({"100"})
+    int hot;
+
+    private BenchmarkContext context;
+    private EntityManager em;
+    private TransactionTemplate transactionTemplate;
+    private MemberWriteBehindBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(members,
+                "querydsl.write-behind.enabled=true",
+                "querydsl.near-cache.enabled=false");
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        buffer = context.getBean(MemberWriteBehindBuffer.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void dirtyChecking() {
+        long id = nextId();
+        int age = ThreadLocalRandom.current().nextInt(100);
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, id).setAge(age));
+    }
+
+    @Benchmark
+    public void writeBehind() {
+        buffer.updateAge(nextId(), ThreadLocalRandom.current().nextInt(100));
+    }
+
+    private long nextId() {
+        return ThreadLocalRandom.current().nextInt(hot) + 1;
+    }
+}
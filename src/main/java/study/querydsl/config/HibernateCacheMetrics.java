@@ -0,0 +1,49 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * 2차 캐시 리전별 hit / miss / put 통계를 Micrometer 로 내보낸다.
+ * querydsl.hibernate-statistics.enabled 가 hibernate.generate_statistics 도 함께 켠다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "querydsl.hibernate-statistics", name = "enabled", havingValue = "true")
+public class HibernateCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory emf;
+
+    public HibernateCacheMetrics(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            register(registry, statistics, region, "hit", CacheRegionStatistics::getHitCount);
+            register(registry, statistics, region, "miss", CacheRegionStatistics::getMissCount);
+            register(registry, statistics, region, "put", CacheRegionStatistics::getPutCount);
+        }
+    }
+
+    private void register(MeterRegistry registry, Statistics statistics, String region, String result,
+                          ToLongFunction<CacheRegionStatistics> count) {
+        FunctionCounter.builder("hibernate.second.level.cache.requests", statistics, s -> {
+                    CacheRegionStatistics regionStatistics = s.getCacheRegionStatistics(region);
+                    return regionStatistics == null ? 0 : count.applyAsLong(regionStatistics);
+                })
+                .tag("region", region)
+                .tag("result", result)
+                .register(registry);
+    }
+}
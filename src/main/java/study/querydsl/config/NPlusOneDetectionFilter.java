@@ -0,0 +1,35 @@
+package study.querydsl.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.querydsl.repository.support.NPlusOneDetector;
+
+import java.io.IOException;
+
+/**
+ * 트랜잭션 밖에서 실행되는 지연 로딩(open-in-view)도 요청 단위로 N+1 을 감지하도록 범위를 연다.
+ */
+@Component
+public class NPlusOneDetectionFilter extends OncePerRequestFilter {
+
+    private final NPlusOneDetector detector;
+
+    public NPlusOneDetectionFilter(NPlusOneDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        detector.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            detector.endRequest();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * 읽기 전용 커넥션을 replica 풀 중 하나에서 꺼낸다. (LazyConnectionDataSourceProxy 의 readOnlyDataSource 로 사용)
+ * ROUND_ROBIN 은 순서대로, LEAST_BUSY 는 사용 중 커넥션이 가장 적은 replica 를 고른다.
+ * {@link #usePrimary(Supplier)} 구간이거나 같은 스레드에서 최근 쓰기가 있었다면 primary 로 보낸다. (read-your-writes)
+ */
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public enum Strategy {ROUND_ROBIN, LEAST_BUSY}
+
+    private static final ThreadLocal<Integer> PINNED = ThreadLocal.withInitial(() -> 0);
+    private static final ThreadLocal<Long> LAST_WRITE = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Strategy strategy;
+    private final long stickyNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicIntegerArray inFlight;
+
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, Strategy strategy, Duration stickyAfterWrite) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.strategy = strategy;
+        this.stickyNanos = stickyAfterWrite.toNanos();
+        this.inFlight = new AtomicIntegerArray(this.replicas.size());
+    }
+
+    /**
+     * 작업 동안 읽기 전용 트랜잭션도 primary 를 사용한다.
+     */
+    public static <T> T usePrimary(Supplier<T> work) {
+        PINNED.set(PINNED.get() + 1);
+        try {
+            return work.get();
+        } finally {
+            int depth = PINNED.get() - 1;
+            if (depth == 0) {
+                PINNED.remove();
+            } else {
+                PINNED.set(depth);
+            }
+        }
+    }
+
+    /**
+     * 현재 스레드에서 쓰기가 일어났음을 기록한다. stickyAfterWrite 동안 이 스레드의 읽기는 primary 로 간다.
+     */
+    public static void markWrite() {
+        LAST_WRITE.set(System.nanoTime());
+    }
+
+    public int inFlight(int replica) {
+        return inFlight.get(replica);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    /**
+     * 고른 풀에 그대로 위임한다. Hikari 풀은 계정을 바꿀 수 없으므로 SQLFeatureNotSupportedException 을 던진다.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionSource source) throws SQLException {
+        if (replicas.isEmpty() || routeToPrimary()) {
+            return source.get(primary);
+        }
+        int index = select();
+        Connection connection = source.get(replicas.get(index));
+        inFlight.incrementAndGet(index);
+        return tracked(connection, index);
+    }
+
+    private boolean routeToPrimary() {
+        if (PINNED.get() > 0) {
+            return true;
+        }
+        Long lastWrite = LAST_WRITE.get();
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < stickyNanos) {
+            return true;
+        }
+        LAST_WRITE.remove();
+        return false;
+    }
+
+    private int select() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        if (strategy == Strategy.ROUND_ROBIN) {
+            return start;
+        }
+        // 동률이면 round-robin 순서를 따라 한 replica 에 몰리지 않게 한다
+        int best = start;
+        for (int i = 1; i < size; i++) {
+            int candidate = (start + i) % size;
+            if (inFlight.get(candidate) < inFlight.get(best)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private Connection tracked(Connection target, int index) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        inFlight.decrementAndGet(index);
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
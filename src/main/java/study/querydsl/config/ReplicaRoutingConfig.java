@@ -0,0 +1,73 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import study.querydsl.repository.support.MemberRowWriteListener;
+import study.querydsl.repository.support.TableWriteListener;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * readOnly 트랜잭션의 커넥션을 replica 로 보낸다. (querydsl.replica.enabled=true 일 때만)
+ * 트랜잭션 시작 시점에는 readOnly 여부만 기록되고 실제 커넥션은 첫 SQL 에서 얻도록 LazyConnectionDataSourceProxy 로 감싼다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.replica", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    // 기본 DataSource 자동 설정과 같이 spring.datasource.hikari.* (풀 크기, 타임아웃 등)를 바인딩한다
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    ReplicaDataSource replicaDataSource(DataSourceProperties properties,
+                                        HikariDataSource primaryDataSource,
+                                        @Value("${querydsl.replica.urls}") List<String> urls,
+                                        @Value("${querydsl.replica.strategy:LEAST_BUSY}") ReplicaDataSource.Strategy strategy,
+                                        @Value("${querydsl.replica.sticky-after-write:1s}") Duration stickyAfterWrite) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(i))
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, strategy, stickyAfterWrite);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+        proxy.setReadOnlyDataSource(replicaDataSource);
+        return proxy;
+    }
+
+    @Bean
+    TableWriteListener replicaStickyAfterWrite() {
+        return table -> ReplicaDataSource.markWrite();
+    }
+
+    @Bean
+    MemberRowWriteListener replicaStickyAfterMemberWrite() {
+        return changes -> ReplicaDataSource.markWrite();
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import study.querydsl.service.TeamStatsVerifier;
+
+/**
+ * team_stats 검증 작업 (querydsl.team-stats.verify.enabled=true 일 때만)
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "querydsl.team-stats.verify", name = "enabled", havingValue = "true")
+public class TeamStatsVerificationConfig {
+
+    private final TeamStatsVerifier verifier;
+    private final boolean repair;
+
+    public TeamStatsVerificationConfig(TeamStatsVerifier verifier,
+                                       @Value("${querydsl.team-stats.verify.repair:true}") boolean repair) {
+        this.verifier = verifier;
+        this.repair = repair;
+    }
+
+    @Scheduled(initialDelayString = "${querydsl.team-stats.verify.interval:10m}",
+            fixedDelayString = "${querydsl.team-stats.verify.interval:10m}")
+    public void verify() {
+        verifier.verifyAndRepair(repair);
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+public class MemberController {
+
+    private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int flushRows;
+
+    public MemberController(MemberRepository memberRepository, ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${querydsl.stream.flush-rows:100}") int flushRows) {
+        this.memberRepository = memberRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * 검색 결과를 한 줄에 한 건씩 NDJSON 으로 내려준다.
+     * 조회가 끝나기를 기다리지 않고 flush-rows 건마다 응답으로 흘려보낸다.
+     */
+    @GetMapping(value = "/v1/members/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody searchMemberStream(MemberSearchCondition condition) {
+        return out -> readOnlyTransaction.executeWithoutResult(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try (Stream<MemberTeamDto> stream = memberRepository.searchStream(condition)) {
+                int rows = 0;
+                Iterator<MemberTeamDto> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(objectMapper.writeValueAsString(iterator.next()));
+                    writer.write('\n');
+                    if (++rows % flushRows == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package study.querydsl.dto;
+
+/**
+ * 회원 나이 집계. 대상 회원이 없으면 count 만 0 이고 나머지는 SQL 집계와 같이 null 이다.
+ */
+public record AgeStatistics(long count, Long sum, Double avg, Integer max, Integer min) {
+
+    public static final AgeStatistics EMPTY = new AgeStatistics(0, null, null, null, null);
+}
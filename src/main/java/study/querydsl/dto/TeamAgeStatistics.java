@@ -0,0 +1,7 @@
+package study.querydsl.dto;
+
+/**
+ * 팀별 회원 나이 집계 (팀이 없는 회원은 제외)
+ */
+public record TeamAgeStatistics(Long teamId, String teamName, AgeStatistics statistics) {
+}
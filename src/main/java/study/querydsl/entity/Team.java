@@ -2,6 +2,9 @@ package study.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,19 +12,42 @@ import java.util.List;
 @Data
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of={"id", "name"})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
 public class Team {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq")
+    @SequenceGenerator(name = "team_seq", sequenceName = "team_seq", allocationSize = 100)
     @Column(name = "team_id")
     private Long id;
     private String name;
 
     @OneToMany(mappedBy = "team")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team.members")
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
 
+    /**
+     * members 를 초기화하지 않고 count 쿼리로 센다. 이미 초기화되어 있으면 메모리에서 센다.
+     * 큰 팀의 회원 목록은 TeamJpaRepository 의 페이지 / 스트림 조회를 쓴다.
+     */
+    public int memberCount() {
+        return Hibernate.size(members);
+    }
+
+    /**
+     * members 를 초기화하지 않고 존재 여부만 조회한다.
+     */
+    public boolean hasMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            // @Data equals 는 team ↔ members 를 따라가므로 id 로 비교한다
+            return members.stream().anyMatch(m -> m == member || m.getId() != null && m.getId().equals(member.getId()));
+        }
+        return Hibernate.contains(members, member);
+    }
+
 }
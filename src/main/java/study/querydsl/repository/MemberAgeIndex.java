@@ -0,0 +1,672 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkWriteListener;
+import study.querydsl.repository.support.MemberRowWriteListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 회원 나이 컬럼 인덱스. (querydsl.age-index.enabled=true 일 때만)
+ * (age, id) 순으로 정렬된 int[] age, long[] id, int[] teamSlot 컬럼을 들고
+ * 나이 범위 조회는 이진 탐색으로, 집계는 행마다 객체를 만들지 않고 배열을 한 번 훑어 계산한다.
+ *
+ * <ul>
+ *     <li>엔티티 저장/수정/삭제는 커밋 후 이벤트(POST_COMMIT_*)로 반영한다. 롤백된 변경은 반영되지 않는다.</li>
+ *     <li>write-behind 처럼 회원 행만 JDBC 로 바꾼 쓰기(MemberRowWriteListener)는 바뀐 회원만 커밋 후에 옮긴다.</li>
+ *     <li>벌크 쓰기(BulkWriteListener)로 member 테이블이 바뀌면 인덱스를 버리고
+ *     다음 조회에서 DB 로부터 다시 만든다.</li>
+ *     <li>다시 만드는 동안 커밋된 변경은 회원별 변경 로그에 모았다가 새 배열에 덧입힌다.
+ *     그 사이 벌크 쓰기가 있었으면 따라잡을 수 없으므로 버리고, 연달아 버려지면 잠시 SQL 로 조회하게 하며 간격을 늘린다.</li>
+ *     <li>읽기-쓰기 트랜잭션 안에서는 커밋 전 변경을 볼 수 있도록 사용하지 않는다. (호출자가 SQL 로 조회)</li>
+ * </ul>
+ */
+@Component
+public class MemberAgeIndex implements BulkWriteListener, MemberRowWriteListener, MeterBinder {
+
+    private static final String TABLE = "member";
+    private static final int NO_TEAM = -1;
+    // 재구성이 이 횟수만큼 연달아 버려지면 다음 시도까지 기다린다
+    private static final int BACKOFF_AFTER = 2;
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private int size;
+    private int[] ages = new int[0];
+    private long[] ids = new long[0];
+    private int[] teamSlots = new int[0];
+    private long[] slotTeamIds = new long[0];
+    private final Map<Long, Integer> slotByTeamId = new HashMap<>();
+    private boolean valid;
+    // 벌크 쓰기로 무효화될 때마다 증가한다
+    private long generation;
+    // 재구성 중에만 null 이 아니다 (write lock)
+    private Map<Long, LoggedChange> changeLog;
+    // rebuildLock
+    private int discardedRebuilds;
+    private long retryAfterNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    public MemberAgeIndex(EntityManagerFactory emf, JdbcTemplate jdbcTemplate,
+                          @Value("${querydsl.age-index.enabled:false}") boolean enabled) {
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        CommitListener commitListener = new CommitListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, commitListener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, commitListener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, commitListener);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * ageGoe <= age <= ageLoe 인 회원 수. null 인 경계는 적용하지 않는다.
+     */
+    public OptionalLong countByAge(Integer ageGoe, Integer ageLoe) {
+        if (!readable()) {
+            return fallbackLong();
+        }
+        lock.readLock().lock();
+        try {
+            if (!valid) {
+                return fallbackLong();
+            }
+            hits.incrementAndGet();
+            return OptionalLong.of(upper(ageLoe) - lower(ageGoe));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * ageGoe <= age <= ageLoe 인 회원 id 를 (age, id) 순으로 돌려준다.
+     */
+    public Optional<long[]> memberIdsByAge(Integer ageGoe, Integer ageLoe) {
+        if (!readable()) {
+            return fallback();
+        }
+        lock.readLock().lock();
+        try {
+            if (!valid) {
+                return fallback();
+            }
+            hits.incrementAndGet();
+            int from = lower(ageGoe);
+            int to = Math.max(from, upper(ageLoe));
+            return Optional.of(Arrays.copyOfRange(ids, from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<AgeStatistics> statistics() {
+        if (!readable()) {
+            return fallback();
+        }
+        lock.readLock().lock();
+        try {
+            if (!valid) {
+                return fallback();
+            }
+            hits.incrementAndGet();
+            if (size == 0) {
+                return Optional.of(AgeStatistics.EMPTY);
+            }
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += ages[i];
+            }
+            // age 오름차순 정렬이므로 양 끝이 최소/최대
+            return Optional.of(new AgeStatistics(size, sum, (double) sum / size, ages[size - 1], ages[0]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 팀 id → 나이 집계. 팀이 없는 회원은 제외한다. 할당은 팀 수에 비례한다.
+     */
+    public Optional<Map<Long, AgeStatistics>> statisticsByTeam() {
+        if (!readable()) {
+            return fallback();
+        }
+        lock.readLock().lock();
+        try {
+            if (!valid) {
+                return fallback();
+            }
+            hits.incrementAndGet();
+            int slots = slotTeamIds.length;
+            int[] counts = new int[slots];
+            long[] sums = new long[slots];
+            int[] mins = new int[slots];
+            int[] maxs = new int[slots];
+            for (int i = 0; i < size; i++) {
+                int slot = teamSlots[i];
+                if (slot == NO_TEAM) {
+                    continue;
+                }
+                int age = ages[i];
+                if (counts[slot]++ == 0) {
+                    mins[slot] = age;
+                }
+                sums[slot] += age;
+                maxs[slot] = age;
+            }
+            Map<Long, AgeStatistics> result = new LinkedHashMap<>();
+            for (int slot = 0; slot < slots; slot++) {
+                if (counts[slot] > 0) {
+                    result.put(slotTeamIds[slot], new AgeStatistics(counts[slot], sums[slot],
+                            (double) sums[slot] / counts[slot], maxs[slot], mins[slot]));
+                }
+            }
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return valid ? size : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            valid = false;
+            generation++;
+            size = 0;
+            ages = new int[0];
+            ids = new long[0];
+            teamSlots = new int[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        if (!enabled || !TABLE.equals(table)) {
+            return;
+        }
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onMembersUpdated(List<Change> changes) {
+        if (!enabled) {
+            return;
+        }
+        List<Change> moved = changes.stream().filter(Change::ageChanged).toList();
+        if (moved.isEmpty()) {
+            return;
+        }
+        Runnable apply = () -> moved.forEach(change ->
+                applyCommitted(change.memberId(), true, change.oldAge(), change.newAge(), change.teamId()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private boolean readable() {
+        if (!enabled) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        return ensureLoaded();
+    }
+
+    private boolean ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (valid) {
+                return true;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        synchronized (rebuildLock) {
+            lock.readLock().lock();
+            try {
+                if (valid) {
+                    return true;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (discardedRebuilds >= BACKOFF_AFTER && System.nanoTime() - retryAfterNanos < 0) {
+                return false;
+            }
+            return rebuild();
+        }
+    }
+
+    /**
+     * rebuildLock 안에서만 호출
+     */
+    private boolean rebuild() {
+        rebuilds.incrementAndGet();
+        long loadGeneration;
+        lock.writeLock().lock();
+        try {
+            loadGeneration = generation;
+            changeLog = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Loaded loaded;
+        try {
+            loaded = load();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changeLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Map<Long, LoggedChange> log = changeLog;
+            changeLog = null;
+            if (generation != loadGeneration) {
+                discarded();
+                return false;
+            }
+            ages = loaded.ages();
+            ids = loaded.ids();
+            teamSlots = loaded.teamSlots();
+            size = loaded.size();
+            slotTeamIds = loaded.slotTeamIds();
+            slotByTeamId.clear();
+            slotByTeamId.putAll(loaded.slotByTeamId());
+            // 읽는 도중 커밋된 변경은 읽은 내용에 이미 들어 있을 수도 있으므로 회원마다 지나온 나이를 모두 지우고 마지막 상태를 넣는다
+            log.forEach(this::replay);
+            valid = true;
+            discardedRebuilds = 0;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void discarded() {
+        discards.incrementAndGet();
+        discardedRebuilds++;
+        if (discardedRebuilds >= BACKOFF_AFTER) {
+            int doublings = Math.min(16, discardedRebuilds - BACKOFF_AFTER);
+            retryAfterNanos = System.nanoTime() + Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << doublings);
+        }
+    }
+
+    private Loaded load() {
+        Integer total = jdbcTemplate.queryForObject("select count(*) from member", Integer.class);
+        int capacity = Math.max(16, total == null ? 0 : total);
+        int[] newAges = new int[capacity];
+        long[] newIds = new long[capacity];
+        int[] newSlots = new int[capacity];
+        Map<Long, Integer> newSlotByTeamId = new HashMap<>();
+        long[][] newSlotTeamIds = {new long[16]};
+        int[] count = {0};
+        jdbcTemplate.query("select id, age, team_id from member order by age, id", rs -> {
+            int i = count[0];
+            if (i == newAges.length) {
+                // count 이후 추가된 행은 변경 로그로 반영된다
+                return;
+            }
+            newIds[i] = rs.getLong(1);
+            newAges[i] = rs.getInt(2);
+            long teamId = rs.getLong(3);
+            newSlots[i] = rs.wasNull() ? NO_TEAM : newSlotByTeamId.computeIfAbsent(teamId, id -> {
+                int slot = newSlotByTeamId.size();
+                if (slot == newSlotTeamIds[0].length) {
+                    newSlotTeamIds[0] = Arrays.copyOf(newSlotTeamIds[0], slot * 2);
+                }
+                newSlotTeamIds[0][slot] = id;
+                return slot;
+            });
+            count[0] = i + 1;
+        });
+        return new Loaded(newAges, newIds, newSlots, count[0],
+                Arrays.copyOf(newSlotTeamIds[0], newSlotByTeamId.size()), newSlotByTeamId);
+    }
+
+    // 아래는 write lock 안에서만 호출
+
+    private void replay(Long id, LoggedChange change) {
+        if (change.unknownAge) {
+            remove(id, null);
+        }
+        for (Integer age : change.ages) {
+            remove(id, age);
+        }
+        if (!change.deleted) {
+            insert(id, change.age, change.teamId);
+        }
+    }
+
+    private void insert(long id, int age, Long teamId) {
+        int position = -search(age, id) - 1;
+        if (position < 0) {
+            return;
+        }
+        if (size == ages.length) {
+            int capacity = Math.max(16, size * 2);
+            ages = Arrays.copyOf(ages, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            teamSlots = Arrays.copyOf(teamSlots, capacity);
+        }
+        System.arraycopy(ages, position, ages, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(teamSlots, position, teamSlots, position + 1, size - position);
+        ages[position] = age;
+        ids[position] = id;
+        teamSlots[position] = slotOf(teamId);
+        size++;
+    }
+
+    private void remove(long id, Integer age) {
+        int position = age == null ? linearSearch(id) : search(age, id);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(ages, position + 1, ages, position, size - position - 1);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        System.arraycopy(teamSlots, position + 1, teamSlots, position, size - position - 1);
+        size--;
+    }
+
+    private int slotOf(Long teamId) {
+        if (teamId == null) {
+            return NO_TEAM;
+        }
+        Integer slot = slotByTeamId.get(teamId);
+        if (slot == null) {
+            slot = slotTeamIds.length;
+            slotTeamIds = Arrays.copyOf(slotTeamIds, slot + 1);
+            slotTeamIds[slot] = teamId;
+            slotByTeamId.put(teamId, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * (age, id) 로 이진 탐색. 없으면 -(삽입 위치) - 1
+     */
+    private int search(int age, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = ages[mid] != age ? Integer.compare(ages[mid], age) : Long.compare(ids[mid], id);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int linearSearch(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 아래는 read lock 안에서 호출
+
+    /**
+     * age >= ageGoe 인 첫 위치
+     */
+    private int lower(Integer ageGoe) {
+        return ageGoe == null ? 0 : firstAgeAtLeast(ageGoe);
+    }
+
+    /**
+     * age > ageLoe 인 첫 위치
+     */
+    private int upper(Integer ageLoe) {
+        return ageLoe == null ? size : ageLoe == Integer.MAX_VALUE ? size : firstAgeAtLeast(ageLoe + 1);
+    }
+
+    private int firstAgeAtLeast(int age) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[mid] < age) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private <T> Optional<T> fallback() {
+        fallbacks.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private OptionalLong fallbackLong() {
+        fallbacks.incrementAndGet();
+        return OptionalLong.empty();
+    }
+
+    /**
+     * @param existed 이미 있던 회원이면 true (oldAge 가 null 이면 이전 나이를 모른다)
+     * @param newAge  삭제되었으면 null
+     */
+    private void applyCommitted(long id, boolean existed, Integer oldAge, Integer newAge, Long teamId) {
+        lock.writeLock().lock();
+        try {
+            if (valid) {
+                if (existed) {
+                    remove(id, oldAge);
+                }
+                if (newAge != null) {
+                    insert(id, newAge, teamId);
+                }
+            }
+            if (changeLog != null) {
+                changeLog.computeIfAbsent(id, key -> new LoggedChange()).record(existed, oldAge, newAge, teamId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Long teamId(Object team) {
+        return team == null ? null : ((Team) team).getId();
+    }
+
+    private static boolean isMember(EntityPersister persister) {
+        return persister.getMappedClass() == Member.class;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.age.index.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.age.index.requests", fallbacks, AtomicLong::get)
+                .tag("result", "fallback")
+                .register(registry);
+        FunctionCounter.builder("member.age.index.rebuilds", rebuilds, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("member.age.index.rebuilds.discarded", discards, AtomicLong::get)
+                .description("Rebuilds thrown away because a bulk write invalidated the index meanwhile")
+                .register(registry);
+        Gauge.builder("member.age.index.size", this, MemberAgeIndex::size)
+                .register(registry);
+    }
+
+    private class CommitListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Member member) {
+                applyCommitted(member.getId(), false, null, member.getAge(), teamId(member.getTeam()));
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (!(event.getEntity() instanceof Member member)) {
+                return;
+            }
+            Object[] oldState = event.getOldState();
+            Integer oldAge = oldState == null ? null
+                    : (Integer) oldState[event.getPersister().getEntityMetamodel().getPropertyIndex("age")];
+            applyCommitted(member.getId(), true, oldAge, member.getAge(), teamId(member.getTeam()));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (!(event.getEntity() instanceof Member)) {
+                return;
+            }
+            Object[] deletedState = event.getDeletedState();
+            Integer age = deletedState == null ? null
+                    : (Integer) deletedState[event.getPersister().getEntityMetamodel().getPropertyIndex("age")];
+            applyCommitted((Long) event.getId(), true, age, null, null);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return isMember(persister);
+        }
+    }
+
+    private record Loaded(int[] ages, long[] ids, int[] teamSlots, int size,
+                          long[] slotTeamIds, Map<Long, Integer> slotByTeamId) {
+    }
+
+    /**
+     * 재구성 도중 커밋된 한 회원의 변경들. 지나온 나이와 마지막 상태만 남긴다.
+     */
+    private static final class LoggedChange {
+        private final Set<Integer> ages = new HashSet<>();
+        private boolean unknownAge;
+        private boolean deleted;
+        private Integer age;
+        private Long teamId;
+
+        void record(boolean existed, Integer oldAge, Integer newAge, Long teamId) {
+            if (existed) {
+                if (oldAge == null) {
+                    unknownAge = true;
+                } else {
+                    ages.add(oldAge);
+                }
+            }
+            deleted = newAge == null;
+            if (newAge != null) {
+                ages.add(newAge);
+                age = newAge;
+                this.teamId = teamId;
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.BulkMutationResult;
+import study.querydsl.repository.support.BulkOptions;
+import study.querydsl.repository.support.BulkOptions.ChunkResult;
+import study.querydsl.repository.support.QueryClass;
+import study.querydsl.repository.support.QueryScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * member 벌크 update / delete 를 id 구간 단위로 나눠 실행한다.
+ * 구간은 조건에 맞는 id 를 chunk-size 건씩 키셋(id > 직전 구간의 끝)으로 읽어 정하므로,
+ * id 가 듬성듬성해도 빈 구간이 생기지 않고 한 구간이 chunk-size 건을 넘지 않는다.
+ * 호출 측 트랜잭션이 없으면 구간마다 커밋하고 parallelism 개의 워커로 나눠 실행할 수 있다.
+ * 호출 측 트랜잭션이 있으면 그 트랜잭션에 참여하여 순차 실행한다.
+ * JPQL update/delete 는 조인을 쓸 수 없으므로 조건은 member 컬럼(또는 서브쿼리)만 사용해야 한다.
+ * update 는 version 도 올려서 같은 회원을 읽어 둔 엔티티 쪽 변경이 낙관적 락으로 충돌하게 한다. (assignments 에서 version 을 직접 바꾸면 안 된다)
+ */
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManagerFactory emf;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final QueryScheduler queryScheduler;
+    private final TeamStatsUpdater teamStatsUpdater;
+    private final int defaultChunkSize;
+
+    public MemberBulkRepository(EntityManagerFactory emf, JPAQueryFactory queryFactory,
+                                PlatformTransactionManager transactionManager, QueryScheduler queryScheduler,
+                                TeamStatsUpdater teamStatsUpdater,
+                                @Value("${querydsl.bulk.chunk-size:1000}") int defaultChunkSize) {
+        this.emf = emf;
+        this.queryFactory = queryFactory;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.queryScheduler = queryScheduler;
+        this.teamStatsUpdater = teamStatsUpdater;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    public BulkMutationResult update(Predicate where, Consumer<JPAUpdateClause> assignments) {
+        return update(where, assignments, BulkOptions.chunkSize(defaultChunkSize));
+    }
+
+    public BulkMutationResult update(Predicate where, Consumer<JPAUpdateClause> assignments, BulkOptions options) {
+        return execute(where, options, (fromId, toId) -> {
+            JPAUpdateClause clause = queryFactory.update(member)
+                    .where(where, member.id.between(fromId, toId));
+            assignments.accept(clause);
+            return clause.set(member.version, member.version.add(1)).execute();
+        });
+    }
+
+    public BulkMutationResult delete(Predicate where) {
+        return delete(where, BulkOptions.chunkSize(defaultChunkSize));
+    }
+
+    public BulkMutationResult delete(Predicate where, BulkOptions options) {
+        return execute(where, options, (fromId, toId) -> queryFactory
+                .delete(member)
+                .where(where, member.id.between(fromId, toId))
+                .execute());
+    }
+
+    // 벌크 연산 하나가 (병렬 워커 수와 무관하게) BULK 자리 하나를 차지하고, team_stats 는 구간마다가 아니라 끝난 뒤 한 번만 다시 만든다
+    private BulkMutationResult execute(Predicate where, BulkOptions options, ChunkMutation mutation) {
+        return queryScheduler.run(QueryClass.BULK,
+                () -> teamStatsUpdater.deferRebuild(() -> executeChunks(where, options, mutation)));
+    }
+
+    private BulkMutationResult executeChunks(Predicate where, BulkOptions options, ChunkMutation mutation) {
+        long start = System.nanoTime();
+        List<long[]> chunks = chunks(where, options.chunkSize());
+        if (chunks.isEmpty()) {
+            return BulkMutationResult.empty();
+        }
+
+        boolean callerTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        long affected;
+        try {
+            affected = callerTransaction || options.parallelism() == 1
+                    ? runSequential(chunks, options, mutation)
+                    : runParallel(chunks, options, mutation);
+        } finally {
+            evictSecondLevelCache();
+        }
+
+        evictStale(chunks.get(0)[0], chunks.get(chunks.size() - 1)[1]);
+        return new BulkMutationResult(affected, chunks.size(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * 조건에 맞는 id 를 chunkSize 건씩 id 순으로 읽어 각 청크의 [첫 id, 마지막 id] 를 구한다.
+     * 경계만 남기므로 메모리는 청크 수에 비례한다. 병렬 워커에 나눠 주려면 미리 다 구해야 한다.
+     */
+    private List<long[]> chunks(Predicate where, int chunkSize) {
+        List<long[]> chunks = new ArrayList<>();
+        Long lastId = null;
+        List<Long> ids;
+        do {
+            ids = queryFactory
+                    .select(member.id)
+                    .from(member)
+                    .where(where, lastId == null ? null : member.id.gt(lastId))
+                    .orderBy(member.id.asc())
+                    .limit(chunkSize)
+                    .fetch();
+            if (!ids.isEmpty()) {
+                lastId = ids.get(ids.size() - 1);
+                chunks.add(new long[]{ids.get(0), lastId});
+            }
+        } while (ids.size() == chunkSize);
+        return chunks;
+    }
+
+    private long runSequential(List<long[]> chunks, BulkOptions options, ChunkMutation mutation) {
+        long affected = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            affected += runChunk(i, chunks.get(i), options, mutation);
+        }
+        return affected;
+    }
+
+    private long runParallel(List<long[]> chunks, BulkOptions options, ChunkMutation mutation) {
+        ExecutorService workers = Executors.newFixedThreadPool(options.parallelism(), new CustomizableThreadFactory("member-bulk-"));
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                int chunk = i;
+                results.add(workers.submit(teamStatsUpdater.withDeferral(
+                        () -> runChunk(chunk, chunks.get(chunk), options, mutation))));
+            }
+            long affected = 0;
+            for (Future<Long> result : results) {
+                affected += result.get();
+            }
+            return affected;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running bulk mutation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Bulk mutation chunk failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long runChunk(int chunk, long[] range, BulkOptions options, ChunkMutation mutation) {
+        Long affected = chunkTransaction.execute(status -> mutation.execute(range[0], range[1]));
+        options.progress().accept(new ChunkResult(chunk, range[0], range[1], affected));
+        return affected;
+    }
+
+    /**
+     * 벌크 연산은 2차 캐시를 거치지 않으므로 member 리전을 연산이 끝난 뒤 한 번 비운다.
+     * 호출 측 트랜잭션에 참여했다면 커밋 전에 비우면 다른 스레드가 이전 값을 다시 채울 수 있으므로 커밋 후에 비운다.
+     */
+    private void evictSecondLevelCache() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emf.getCache().evict(Member.class);
+                }
+            });
+        } else {
+            emf.getCache().evict(Member.class);
+        }
+    }
+
+    /**
+     * 호출 스레드의 영속성 컨텍스트에 남아 있는 구간 내 회원을 분리한다.
+     * 벌크 연산은 영속성 컨텍스트를 갱신하지 않으므로 다음 조회에서 다시 읽도록 한다.
+     */
+    private void evictStale(long minId, long maxId) {
+        EntityManager current = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+        if (current == null) {
+            return;
+        }
+        List<Object> stale = new ArrayList<>();
+        current.unwrap(SessionImplementor.class).getPersistenceContextInternal().getEntitiesByKey()
+                .forEach((key, entity) -> {
+                    if (entity instanceof Member m && m.getId() != null && m.getId() >= minId && m.getId() <= maxId) {
+                        stale.add(entity);
+                    }
+                });
+        stale.forEach(current::detach);
+    }
+
+    @FunctionalInterface
+    private interface ChunkMutation {
+        long execute(long fromId, long toId);
+    }
+}
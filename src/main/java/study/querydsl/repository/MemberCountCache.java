@@ -0,0 +1,161 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.repository.support.MemberRowWriteListener;
+import study.querydsl.repository.support.TableWriteListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 전체 건수 캐시 (LRU + TTL).
+ * member / team 테이블에 쓰기가 일어나면 전부 무효화한다.
+ * 쓰기를 한 트랜잭션 안에서는 캐시를 거치지 않고, 커밋/롤백 후 한 번 더 무효화한다.
+ */
+@Component
+public class MemberCountCache implements TableWriteListener, MemberRowWriteListener, MeterBinder {
+
+    private static final Set<String> TABLES = Set.of("member", "team");
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Map<MemberSearchKey, Entry> entries;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public MemberCountCache(@Value("${querydsl.count-cache.enabled:true}") boolean enabled,
+                            @Value("${querydsl.count-cache.max-size:1000}") int maxSize,
+                            @Value("${querydsl.count-cache.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemberSearchKey, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public long get(MemberSearchKey key, LongSupplier loader) {
+        if (!enabled || writtenInCurrentTransaction()) {
+            return loader.getAsLong();
+        }
+        long now = System.nanoTime();
+        long loadGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - now > 0) {
+                hits.incrementAndGet();
+                return entry.count;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            loadGeneration = generation.get();
+        }
+        misses.incrementAndGet();
+        long count = loader.getAsLong();
+        synchronized (entries) {
+            // 조회 도중 무효화되었다면 오래된 값일 수 있으므로 저장하지 않는다
+            if (generation.get() == loadGeneration) {
+                entries.put(key, new Entry(count, now + ttlNanos));
+            }
+        }
+        return count;
+    }
+
+    public boolean contains(MemberSearchKey key) {
+        if (!enabled || writtenInCurrentTransaction()) {
+            return false;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return entry != null && entry.expiresAt - System.nanoTime() > 0;
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void onTableWrite(String table) {
+        if (TABLES.contains(table)) {
+            invalidateWithTransaction();
+        }
+    }
+
+    @Override
+    public void onMembersUpdated(List<Change> changes) {
+        invalidateWithTransaction();
+    }
+
+    private void invalidateWithTransaction() {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    private boolean writtenInCurrentTransaction() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.count.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.count.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("member.count.cache.evictions", evictions, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("member.count.cache.invalidations", invalidations, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("member.count.cache.size", this, MemberCountCache::size)
+                .register(registry);
+    }
+
+    private record Entry(long count, long expiresAt) {
+    }
+}
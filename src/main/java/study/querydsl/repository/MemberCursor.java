@@ -0,0 +1,37 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 마지막으로 읽은 행의 (정렬 키, member.id) 위치.
+ * 클라이언트에는 encode() 결과인 불투명 토큰으로만 전달한다.
+ */
+public record MemberCursor(MemberSortKey sortKey, int value, long id) {
+
+    public static MemberCursor after(MemberSortKey sortKey, MemberTeamDto last) {
+        int value = sortKey == MemberSortKey.AGE ? last.getAge() : 0;
+        return new MemberCursor(sortKey, value, last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + ":" + value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token, MemberSortKey expected) {
+        MemberCursor cursor;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            cursor = new MemberCursor(MemberSortKey.valueOf(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+        if (cursor.sortKey() != expected) {
+            throw new IllegalArgumentException("Cursor was issued for " + cursor.sortKey() + ", not " + expected);
+        }
+        return cursor;
+    }
+}
@@ -5,7 +5,8 @@ import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
-import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
@@ -14,22 +15,44 @@ import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.support.EntityStreams;
+import study.querydsl.repository.support.IdBatchLoader;
+import study.querydsl.repository.support.JPAQueryHints;
+import study.querydsl.repository.support.QueryClass;
+import study.querydsl.repository.support.QueryScheduler;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.*;
 
 @Repository
-@RequiredArgsConstructor
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-
+    private final MemberSearchQueryCache queryCache;
+    private final IdBatchLoader idBatchLoader;
+    private final QueryScheduler queryScheduler;
+    private final int streamFetchSize;
+    private final int streamClearInterval;
+
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, MemberSearchQueryCache queryCache,
+                               IdBatchLoader idBatchLoader, QueryScheduler queryScheduler,
+                               @Value("${querydsl.stream.fetch-size:500}") int streamFetchSize,
+                               @Value("${querydsl.stream.clear-interval:1000}") int streamClearInterval) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.queryCache = queryCache;
+        this.idBatchLoader = idBatchLoader;
+        this.queryScheduler = queryScheduler;
+        this.streamFetchSize = streamFetchSize;
+        this.streamClearInterval = streamClearInterval;
+    }
 
     public void save(Member member){
         em.persist(member);
@@ -38,9 +61,29 @@ public class MemberJpaRepository {
         Member member = em.find(Member.class, id);
         return Optional.ofNullable(member);
     }
+    /**
+     * ids 순서대로 회원을 조회한다. 없는 id 는 빠진다.
+     */
+    public List<Member> findAllByIds(Collection<Long> ids){
+        return idBatchLoader.load(ids,
+                (factory, chunk) -> factory.selectFrom(member).where(member.id.in(chunk)).fetch(),
+                Member::getId);
+    }
     public List<Member> findAll(){
         return em.createQuery("select m from Member m",Member.class).getResultList();
     }
+    /**
+     * findAll 의 스트리밍 버전. clear-interval 건마다 이미 읽은 회원을 영속성 컨텍스트에서 분리한다.
+     * 분리하기 전에 flush 하므로 스트림을 소비하면서 바꾼 회원도 저장된다.
+     * 트랜잭션 안에서 호출하고 반드시 close 해야 한다.
+     */
+    public Stream<Member> streamAll(){
+        Stream<Member> stream = queryScheduler.stream(QueryClass.EXPORT, () -> queryFactory
+                .selectFrom(member)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .stream());
+        return EntityStreams.detachEvery(em, stream, streamClearInterval);
+    }
     public List<Member> findByName(String username){
         return em.createQuery("select m from Member m where m.username = :username",Member.class)
                 .setParameter("username",username)
@@ -53,6 +96,14 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    /**
+     * findAll_QueryDsl 의 읽기 전용 버전. 스냅샷을 남기지 않아 대량 조회 시 힙과 flush 비용이 줄어든다.
+     */
+    public List<Member> findAll_QueryDslReadOnly(){
+        return JPAQueryHints.readOnly(queryFactory.selectFrom(member))
+                .fetch();
+    }
+
     public List<Member> findByUsername_QueryDsl(String username){
         return queryFactory
                 .selectFrom(member)
@@ -61,6 +112,13 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
+        if (queryCache.isEnabled()) {
+            return queryCache.search(em, new MemberSearchKey(
+                    hasText(condition.getUsername()) ? condition.getUsername() : null,
+                    hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                    condition.getAgeGoe(),
+                    condition.getAgeLoe()));
+        }
         BooleanBuilder builder = new BooleanBuilder();
         if(hasText(condition.getUsername())){
            builder.and(member.username.eq(condition.getUsername()));
@@ -86,6 +144,9 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition){
+        if (queryCache.isEnabled()) {
+            return queryCache.search(em, MemberSearchKey.of(condition));
+        }
         return queryFactory
                 .select(new QMemberTeamDto(member.id.as("memberId"),member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
                 .from(member)
@@ -0,0 +1,276 @@
+package study.querydsl.repository;
+
+import com.querydsl.collections.CollQueryFactory;
+import com.querydsl.core.types.Predicate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.MemberRowWriteListener;
+import study.querydsl.repository.support.SingleFlight;
+import study.querydsl.repository.support.TableWriteListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 회원/팀 전체를 메모리 스냅샷으로 들고 QuerydslPredicateExecutor 의 Predicate 를 querydsl-collections 로 평가한다.
+ * (querydsl.near-cache.enabled=true 일 때만, 기본값 비활성)
+ *
+ * <ul>
+ *     <li>member / team 에 쓰기가 일어나면 스냅샷 버전이 올라가고 다음 조회에서 다시 읽는다.
+ *     읽기-쓰기 트랜잭션 안에서는 스냅샷을 쓰지 않고, 쓰기가 있었다면 커밋/롤백 후 한 번 더 무효화한다.</li>
+ *     <li>스냅샷은 커밋된 데이터만 담는다. 읽는 도중 무효화되면 그 스냅샷은 버린다.
+ *     DB 에서 읽는 동안 락을 잡지 않으며, 같은 버전을 동시에 읽으려는 호출은 한 번의 로딩을 함께 기다린다.</li>
+ *     <li>회원 수가 max-members 를 넘거나 Predicate 를 메모리에서 평가할 수 없으면 empty 를 돌려준다. (호출자가 DB 로 조회)</li>
+ *     <li>돌려주는 Member / Team 은 호출마다 새로 만든 분리(detached) 복사본이다. 수정해도 스냅샷에는 반영되지 않는다.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class MemberNearCache implements TableWriteListener, MemberRowWriteListener, MeterBinder {
+
+    private static final Set<String> TABLES = Set.of("member", "team");
+
+    // 64bit JVM, compressed oops 기준 대략치
+    private static final long MEMBER_BYTES = 32 + 24;   // Member + Long id
+    private static final long TEAM_BYTES = 32 + 24 + 40; // Team + Long id + ArrayList
+    private static final long STRING_BYTES = 24 + 16;   // String + byte[] 헤더
+    private static final long REFERENCE_BYTES = 4;
+    // 이보다 오래 걸리는 로딩은 기다리지 않고 직접 읽는다
+    private static final Duration LOAD_MAX_WAIT = Duration.ofSeconds(10);
+
+    private final EntityManagerFactory emf;
+    private final boolean enabled;
+    private final int maxMembers;
+
+    private final Object loadLock = new Object();
+    private final SingleFlight<Long, Snapshot> loader = new SingleFlight<>(LOAD_MAX_WAIT);
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public MemberNearCache(EntityManagerFactory emf,
+                           @Value("${querydsl.near-cache.enabled:false}") boolean enabled,
+                           @Value("${querydsl.near-cache.max-members:10000}") int maxMembers) {
+        this.emf = emf;
+        this.enabled = enabled;
+        this.maxMembers = maxMembers;
+    }
+
+    public Optional<List<Member>> findAll(Predicate predicate) {
+        Snapshot current = current();
+        if (current == null) {
+            return fallback();
+        }
+        try {
+            List<Member> result = CollQueryFactory.from(member, current.members())
+                    .where(predicate)
+                    .fetch();
+            hits.incrementAndGet();
+            return Optional.of(copyOf(result));
+        } catch (RuntimeException e) {
+            log.debug("near-cache cannot evaluate predicate {}, falling back to the database", predicate, e);
+            return fallback();
+        }
+    }
+
+    public Optional<Long> count(Predicate predicate) {
+        return findAll(predicate).map(result -> (long) result.size());
+    }
+
+    /**
+     * 현재 스냅샷의 버전. 쓰기가 감지될 때마다 증가한다.
+     */
+    public long version() {
+        return generation.get();
+    }
+
+    public long estimatedBytes() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.estimatedBytes();
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.members().size();
+    }
+
+    public void invalidate() {
+        synchronized (loadLock) {
+            generation.incrementAndGet();
+            snapshot = null;
+        }
+    }
+
+    private Snapshot current() {
+        if (!enabled || inWriteTransaction()) {
+            return null;
+        }
+        Snapshot current = snapshot;
+        long version = generation.get();
+        if (current != null && current.version() == version) {
+            return current.tooLarge() ? null : current;
+        }
+        current = loader.execute(version, () -> load(version));
+        synchronized (loadLock) {
+            // 읽는 도중 무효화되었다면 이미 오래된 스냅샷이므로 저장하지 않는다
+            if (current.version() == generation.get()) {
+                snapshot = current;
+            }
+        }
+        return current.tooLarge() || current.version() != generation.get() ? null : current;
+    }
+
+    /**
+     * 읽기-쓰기 트랜잭션은 flush 전 변경 사항을 볼 수 있어야 하므로 스냅샷을 쓰지 않는다.
+     */
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private Snapshot load(long version) {
+        loads.incrementAndGet();
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.unwrap(Session.class).setDefaultReadOnly(true);
+            Long total = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+            if (total > maxMembers) {
+                return new Snapshot(version, List.of(), 0, true);
+            }
+            List<Member> loaded = em.createQuery("select m from Member m left join fetch m.team", Member.class)
+                    .getResultList();
+            return snapshotOf(version, loaded);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 영속성 컨텍스트/프록시와 끊긴 순수 객체로 복사한다. Team.members 도 스냅샷 안의 회원으로 채운다.
+     */
+    private static Snapshot snapshotOf(long version, List<Member> loaded) {
+        Map<Long, Team> teams = new HashMap<>();
+        List<Member> members = new ArrayList<>(loaded.size());
+        long bytes = 0;
+        for (Member source : loaded) {
+            Team team = null;
+            if (source.getTeam() != null) {
+                Team sourceTeam = source.getTeam();
+                team = teams.get(sourceTeam.getId());
+                if (team == null) {
+                    team = new Team(sourceTeam.getName());
+                    team.setId(sourceTeam.getId());
+                    teams.put(team.getId(), team);
+                    bytes += TEAM_BYTES + stringBytes(team.getName());
+                }
+            }
+            Member copy = new Member(source.getUsername(), source.getAge(), team);
+            copy.setId(source.getId());
+            copy.setVersion(source.getVersion());
+            members.add(copy);
+            bytes += MEMBER_BYTES + stringBytes(copy.getUsername()) + REFERENCE_BYTES * (team == null ? 1 : 2);
+        }
+        return new Snapshot(version, List.copyOf(members), bytes, false);
+    }
+
+    /**
+     * 스냅샷 객체를 호출자에게 넘기지 않도록 결과를 복사한다. 같은 팀의 회원은 같은 Team 복사본을 가리킨다.
+     */
+    private static List<Member> copyOf(List<Member> result) {
+        Map<Long, Team> teams = new HashMap<>();
+        List<Member> copies = new ArrayList<>(result.size());
+        for (Member source : result) {
+            Team team = source.getTeam() == null ? null : teams.computeIfAbsent(source.getTeam().getId(), id -> {
+                Team copy = new Team(source.getTeam().getName());
+                copy.setId(id);
+                return copy;
+            });
+            Member copy = new Member(source.getUsername(), source.getAge(), team);
+            copy.setId(source.getId());
+            copy.setVersion(source.getVersion());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + value.length();
+    }
+
+    private <T> Optional<T> fallback() {
+        fallbacks.incrementAndGet();
+        return Optional.empty();
+    }
+
+    @Override
+    public void onTableWrite(String table) {
+        if (TABLES.contains(table)) {
+            invalidateWithTransaction();
+        }
+    }
+
+    @Override
+    public void onMembersUpdated(List<Change> changes) {
+        invalidateWithTransaction();
+    }
+
+    private void invalidateWithTransaction() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberNearCache.this);
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.near.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.near.cache.requests", fallbacks, AtomicLong::get)
+                .tag("result", "fallback")
+                .register(registry);
+        FunctionCounter.builder("member.near.cache.loads", loads, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("member.near.cache.size", this, MemberNearCache::size)
+                .register(registry);
+        Gauge.builder("member.near.cache.bytes", this, MemberNearCache::estimatedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("member.near.cache.version", this, MemberNearCache::version)
+                .register(registry);
+    }
+
+    private record Snapshot(long version, List<Member> members, long estimatedBytes, boolean tooLarge) {
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import study.querydsl.entity.Member;
+
+/**
+ * QuerydslPredicateExecutor 의 findAll(Predicate) / count(Predicate) 를 near-cache 를 거치도록 대체한다.
+ */
+public interface MemberPredicateRepository {
+
+    Iterable<Member> findAll(Predicate predicate);
+
+    long count(Predicate predicate);
+}
@@ -0,0 +1,37 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import study.querydsl.entity.Member;
+
+import static study.querydsl.entity.QMember.member;
+
+public class MemberPredicateRepositoryImpl implements MemberPredicateRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberNearCache nearCache;
+
+    public MemberPredicateRepositoryImpl(JPAQueryFactory queryFactory, MemberNearCache nearCache) {
+        this.queryFactory = queryFactory;
+        this.nearCache = nearCache;
+    }
+
+    @Override
+    public Iterable<Member> findAll(Predicate predicate) {
+        return nearCache.findAll(predicate)
+                .orElseGet(() -> queryFactory
+                        .selectFrom(member)
+                        .where(predicate)
+                        .fetch());
+    }
+
+    @Override
+    public long count(Predicate predicate) {
+        return nearCache.count(predicate)
+                .orElseGet(() -> queryFactory
+                        .select(member.count())
+                        .from(member)
+                        .where(predicate)
+                        .fetchOne());
+    }
+}
@@ -7,7 +7,7 @@ import study.querydsl.entity.Member;
 
 import java.util.List;
 
-public interface MemberRepository extends JpaRepository<Member, Long>,MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
+public interface MemberRepository extends JpaRepository<Member, Long>,MemberRepositoryCustom, MemberPredicateRepository, QuerydslPredicateExecutor<Member> {
     List<Member> findByUsername(String username);
 
 }
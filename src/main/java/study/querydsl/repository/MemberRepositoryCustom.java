@@ -5,11 +5,19 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.CursorSlice;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size);
+    CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberSortKey sortKey, String cursor, int size);
+    Stream<MemberTeamDto> searchStream(MemberSearchCondition condition);
+    Map<MemberSearchCondition, List<MemberTeamDto>> searchAll(Collection<MemberSearchCondition> conditions);
 }
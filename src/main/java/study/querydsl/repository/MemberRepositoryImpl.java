@@ -1,11 +1,16 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -15,23 +20,53 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.CursorSlice;
+import study.querydsl.repository.support.ParallelCountExecutor;
+import study.querydsl.repository.support.QueryClass;
+import study.querydsl.repository.support.QueryScheduler;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.isEmpty;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom{
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final ParallelCountExecutor countExecutor;
+    private final MemberCountCache countCache;
+    private final MemberSearchQueryCache queryCache;
+    private final MemberAgeIndex ageIndex;
+    private final QueryScheduler queryScheduler;
+    private final int streamFetchSize;
+    private final int searchAllChunkSize;
 
 //    public MemberRepositoryImpl(EntityManager em) {
 //        this.queryFactory = new JPAQueryFactory(em);
 //    }
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, ParallelCountExecutor countExecutor, MemberCountCache countCache,
+                                MemberSearchQueryCache queryCache, MemberAgeIndex ageIndex, QueryScheduler queryScheduler,
+                                @Value("${querydsl.stream.fetch-size:500}") int streamFetchSize,
+                                @Value("${querydsl.search-all.chunk-size:100}") int searchAllChunkSize) {
         super(Member.class);
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.countExecutor = countExecutor;
+        this.countCache = countCache;
+        this.queryCache = queryCache;
+        this.ageIndex = ageIndex;
+        this.queryScheduler = queryScheduler;
+        this.streamFetchSize = streamFetchSize;
+        this.searchAllChunkSize = searchAllChunkSize;
     }
 
     @Override
@@ -57,7 +92,37 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        if (countExecutor.isEnabled() && !countCache.contains(key)) {
+            return countExecutor.getPage(pageable,
+                    () -> queryScheduler.run(QueryClass.CONTENT, () -> searchContent(condition, pageable)),
+                    factory -> countCache.get(key, queryScheduler.count(countQuery(factory, condition)::fetchOne)));
+        }
+
+        List<MemberTeamDto> content = queryScheduler.run(QueryClass.CONTENT, () -> searchContent(condition, pageable));
+        LongSupplier count = queryScheduler.count(countSupplier(key, condition));
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> countCache.get(key, count));
+    }
+
+    /**
+     * 나이 조건만 있는 count 는 MemberAgeIndex 로 계산할 수 있다. (사용할 수 없으면 count 쿼리)
+     */
+    private LongSupplier countSupplier(MemberSearchKey key, MemberSearchCondition condition) {
+        LongSupplier countQuery = queryCache.isEnabled()
+                ? () -> queryCache.count(em, key)
+                : countQuery(queryFactory, condition)::fetchOne;
+        if (key.username() != null || key.teamName() != null) {
+            return countQuery;
+        }
+        return () -> ageIndex.countByAge(key.ageGoe(), key.ageLoe()).orElseGet(countQuery);
+    }
+
+    private List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable) {
+        if (queryCache.isEnabled()) {
+            return queryCache.search(em, MemberSearchKey.of(condition), pageable.getOffset(), pageable.getPageSize());
+        }
+        return queryFactory
                 .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
                 .from(member)
                 .leftJoin(member.team, team)
@@ -70,8 +135,10 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
+    }
 
-        JPAQuery<Long> countQuery = queryFactory
+    private JPAQuery<Long> countQuery(JPAQueryFactory factory, MemberSearchCondition condition) {
+        return factory
                 .select(member.count())
                 .from(member)
                 .leftJoin(member.team, team)
@@ -81,12 +148,13 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 );
-
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (queryCache.isEnabled()) {
+            return queryCache.search(em, MemberSearchKey.of(condition));
+        }
         List<MemberTeamDto> result = from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
@@ -107,6 +175,149 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                     .fetch();
         }
 
+    @Override
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        return searchSlice(condition, MemberSortKey.ID, cursor, size);
+    }
+
+    /**
+     * offset 대신 마지막 행의 (sortKey, member.id) 이후부터 읽는다.
+     * 한 건을 더 조회해서 다음 슬라이스 존재 여부를 판단
+     */
+    @Override
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberSortKey sortKey, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        MemberCursor after = cursor == null ? null : MemberCursor.decode(cursor, sortKey);
+        List<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        seekAfter(after)
+                )
+                .orderBy(sliceOrder(sortKey))
+                .limit(size + 1)
+                .fetch();
+
+        if (content.size() <= size) {
+            return new CursorSlice<>(content, null);
+        }
+        List<MemberTeamDto> slice = new ArrayList<>(content.subList(0, size));
+        return new CursorSlice<>(slice, MemberCursor.after(sortKey, slice.get(size - 1)).encode());
+    }
+
+    /**
+     * 결과를 List 로 모으지 않고 JDBC fetch size 단위로 읽어 온다.
+     * 트랜잭션 안에서 호출하고 반드시 close 해야 한다. (try-with-resources)
+     */
+    @Override
+    public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition) {
+        return queryScheduler.stream(QueryClass.EXPORT, () -> queryFactory
+                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .stream());
+    }
+
+    /**
+     * 여러 조건을 조건 조합(shape)별로 묶어 몇 번의 쿼리로 조회한 뒤 조건별로 나눠 돌려준다.
+     * 조건이 username 또는 teamName 하나뿐인 shape 는 IN 목록으로, 나머지는 조건들을 OR 로 묶어 chunk-size 개씩 조회한다.
+     * 같은 조건(정규화 기준)은 한 번만 조회하며 결과 목록을 공유한다.
+     */
+    @Override
+    public Map<MemberSearchCondition, List<MemberTeamDto>> searchAll(Collection<MemberSearchCondition> conditions) {
+        Map<MemberSearchKey, List<MemberSearchCondition>> byKey = new LinkedHashMap<>();
+        for (MemberSearchCondition condition : conditions) {
+            byKey.computeIfAbsent(MemberSearchKey.of(condition), key -> new ArrayList<>()).add(condition);
+        }
+        Map<String, List<MemberSearchKey>> byShape = new LinkedHashMap<>();
+        for (MemberSearchKey key : byKey.keySet()) {
+            byShape.computeIfAbsent(key.shape(), shape -> new ArrayList<>()).add(key);
+        }
+
+        Map<MemberSearchKey, List<MemberTeamDto>> found = new HashMap<>();
+        for (List<MemberSearchKey> keys : byShape.values()) {
+            keys.forEach(key -> found.put(key, new ArrayList<>()));
+            MemberSearchKey first = keys.get(0);
+            if (first.ageGoe() == null && first.ageLoe() == null && (first.username() == null) != (first.teamName() == null)) {
+                searchByValues(keys, first.username() != null, found);
+            } else {
+                searchByDisjunction(keys, found);
+            }
+        }
+
+        Map<MemberSearchCondition, List<MemberTeamDto>> result = new LinkedHashMap<>();
+        byKey.forEach((key, sameConditions) -> sameConditions.forEach(condition -> result.put(condition, found.get(key))));
+        return result;
+    }
+
+    private void searchByValues(List<MemberSearchKey> keys, boolean byUsername, Map<MemberSearchKey, List<MemberTeamDto>> found) {
+        Map<String, MemberSearchKey> keyByValue = new HashMap<>();
+        for (MemberSearchKey key : keys) {
+            keyByValue.put(byUsername ? key.username() : key.teamName(), key);
+        }
+        List<String> values = new ArrayList<>(keyByValue.keySet());
+        // IN 목록은 OR 보다 가벼우므로 더 크게 묶는다
+        int chunkSize = searchAllChunkSize * 10;
+        for (int from = 0; from < values.size(); from += chunkSize) {
+            List<String> chunk = values.subList(from, Math.min(values.size(), from + chunkSize));
+            List<MemberTeamDto> rows = queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(byUsername ? member.username.in(chunk) : team.name.in(chunk))
+                    .fetch();
+            for (MemberTeamDto row : rows) {
+                found.get(keyByValue.get(byUsername ? row.getUsername() : row.getTeamName())).add(row);
+            }
+        }
+    }
+
+    private void searchByDisjunction(List<MemberSearchKey> keys, Map<MemberSearchKey, List<MemberTeamDto>> found) {
+        for (int from = 0; from < keys.size(); from += searchAllChunkSize) {
+            List<MemberSearchKey> chunk = keys.subList(from, Math.min(keys.size(), from + searchAllChunkSize));
+            BooleanBuilder anyOf = new BooleanBuilder();
+            for (MemberSearchKey key : chunk) {
+                anyOf.or(ExpressionUtils.allOf(usernameEq(key.username()), teamNameEq(key.teamName()),
+                        ageGoe(key.ageGoe()), ageLoe(key.ageLoe())));
+            }
+            List<MemberTeamDto> rows = queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(anyOf)
+                    .fetch();
+            for (MemberTeamDto row : rows) {
+                for (MemberSearchKey key : chunk) {
+                    if (matches(key, row)) {
+                        found.get(key).add(row);
+                    }
+                }
+            }
+        }
+    }
+
+    // usernameEq / teamNameEq / ageGoe / ageLoe 와 같은 판정
+    private static boolean matches(MemberSearchKey key, MemberTeamDto row) {
+        return (key.username() == null || key.username().equals(row.getUsername()))
+                && (key.teamName() == null || key.teamName().equals(row.getTeamName()))
+                && (key.ageGoe() == null || row.getAge() >= key.ageGoe())
+                && (key.ageLoe() == null || row.getAge() <= key.ageLoe());
+    }
+
 //    public Page<MemberTeamDto> searchPageSimple2(MemberSearchCondition condition, Pageable pageable) {
 //        JPQLQuery<MemberTeamDto> jpqlQuery = from(member)
 //                .leftJoin(member.team, team)
@@ -144,6 +355,24 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             return ageGoe == null ? null : member.age.goe(ageGoe);
         }
 
+        private BooleanExpression seekAfter(MemberCursor cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            return switch (cursor.sortKey()) {
+                case ID -> member.id.gt(cursor.id());
+                case AGE -> member.age.gt(cursor.value())
+                        .or(member.age.eq(cursor.value()).and(member.id.gt(cursor.id())));
+            };
+        }
+
+        private OrderSpecifier<?>[] sliceOrder(MemberSortKey sortKey) {
+            return switch (sortKey) {
+                case ID -> new OrderSpecifier<?>[]{member.id.asc()};
+                case AGE -> new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+            };
+        }
+
 
 
 
@@ -0,0 +1,43 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.StringJoiner;
+
+import static org.springframework.util.StringUtils.hasLength;
+
+/**
+ * MemberSearchCondition 을 정규화한 불변 키.
+ * usernameEq / teamNameEq 와 동일하게 빈 문자열은 조건 없음(null)으로 본다.
+ */
+public record MemberSearchKey(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+
+    public static MemberSearchKey of(MemberSearchCondition condition) {
+        return new MemberSearchKey(
+                hasLength(condition.getUsername()) ? condition.getUsername() : null,
+                hasLength(condition.getTeamName()) ? condition.getTeamName() : null,
+                condition.getAgeGoe(),
+                condition.getAgeLoe());
+    }
+
+    /**
+     * 값이 있는 조건의 조합. 예) "teamName+ageGoe", 조건이 없으면 "none"
+     */
+    public String shape() {
+        StringJoiner joiner = new StringJoiner("+");
+        joiner.setEmptyValue("none");
+        if (username != null) {
+            joiner.add("username");
+        }
+        if (teamName != null) {
+            joiner.add("teamName");
+        }
+        if (ageGoe != null) {
+            joiner.add("ageGoe");
+        }
+        if (ageLoe != null) {
+            joiner.add("ageLoe");
+        }
+        return joiner.toString();
+    }
+}
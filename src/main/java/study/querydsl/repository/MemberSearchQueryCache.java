@@ -0,0 +1,163 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 검색 쿼리의 조건 조합(shape)별 JPQL 캐시.
+ * 조건 4개의 유무로 shape 는 16 가지뿐이므로, shape 마다 Querydsl 식을 파라미터(Param)로 한 번만 직렬화해 두고
+ * 호출마다 값만 바인딩한다. 같은 JPQL 문자열이 반복되므로 Hibernate 쿼리 플랜 캐시도 그대로 적중한다.
+ */
+@Component
+public class MemberSearchQueryCache implements MeterBinder {
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private static final int SHAPES = 16;
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"));
+
+    private enum Kind {CONTENT, COUNT}
+
+    private final boolean enabled;
+    private final AtomicReferenceArray<CompiledQuery> compiled = new AtomicReferenceArray<>(Kind.values().length * SHAPES);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MemberSearchQueryCache(@Value("${querydsl.query-shape-cache.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * offset / limit 이 음수이면 적용하지 않는다.
+     */
+    public List<MemberTeamDto> search(EntityManager em, MemberSearchKey key, long offset, int limit) {
+        Query query = createQuery(em, Kind.CONTENT, key);
+        if (offset > 0) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(PROJECTION.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public List<MemberTeamDto> search(EntityManager em, MemberSearchKey key) {
+        return search(em, key, 0, -1);
+    }
+
+    public long count(EntityManager em, MemberSearchKey key) {
+        return ((Number) createQuery(em, Kind.COUNT, key).getSingleResult()).longValue();
+    }
+
+    private Query createQuery(EntityManager em, Kind kind, MemberSearchKey key) {
+        int shape = shape(key);
+        CompiledQuery compiledQuery = compiled(em, kind, shape);
+        Query query = em.createQuery(compiledQuery.jpql());
+        JPAUtil.setConstants(query, compiledQuery.constants(), bindings(key));
+        return query;
+    }
+
+    private CompiledQuery compiled(EntityManager em, Kind kind, int shape) {
+        int slot = kind.ordinal() * SHAPES + shape;
+        CompiledQuery compiledQuery = compiled.get(slot);
+        if (compiledQuery != null) {
+            hits.incrementAndGet();
+            return compiledQuery;
+        }
+        misses.incrementAndGet();
+        // 동시에 컴파일되어도 결과가 같으므로 먼저 저장된 것을 쓴다
+        compiled.compareAndSet(slot, null, compile(em, kind, shape));
+        return compiled.get(slot);
+    }
+
+    private CompiledQuery compile(EntityManager em, Kind kind, int shape) {
+        Expression<?> projection = kind == Kind.COUNT ? member.count() : PROJECTION;
+        JPAQuery<?> query = new JPAQuery<Void>()
+                .select(projection)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        (shape & 1) == 0 ? null : member.username.eq(USERNAME),
+                        (shape & 2) == 0 ? null : team.name.eq(TEAM_NAME),
+                        (shape & 4) == 0 ? null : member.age.goe(AGE_GOE),
+                        (shape & 8) == 0 ? null : member.age.loe(AGE_LOE));
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT, em);
+        serializer.serialize(query.getMetadata(), false, null);
+        return new CompiledQuery(serializer.toString(), List.copyOf(serializer.getConstants()));
+    }
+
+    private static int shape(MemberSearchKey key) {
+        return (key.username() == null ? 0 : 1)
+                | (key.teamName() == null ? 0 : 2)
+                | (key.ageGoe() == null ? 0 : 4)
+                | (key.ageLoe() == null ? 0 : 8);
+    }
+
+    private static Map<ParamExpression<?>, Object> bindings(MemberSearchKey key) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>(8);
+        if (key.username() != null) {
+            params.put(USERNAME, key.username());
+        }
+        if (key.teamName() != null) {
+            params.put(TEAM_NAME, key.teamName());
+        }
+        if (key.ageGoe() != null) {
+            params.put(AGE_GOE, key.ageGoe());
+        }
+        if (key.ageLoe() != null) {
+            params.put(AGE_LOE, key.ageLoe());
+        }
+        return params;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.query.cache", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.query.cache", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    private record CompiledQuery(String jpql, List<Object> constants) {
+    }
+}
@@ -0,0 +1,10 @@
+package study.querydsl.repository;
+
+/**
+ * 커서(keyset) 페이징 정렬 기준. 항상 member.id 를 보조 키로 사용한다.
+ * username 은 null 이 허용되어 seek 조건이 깨지므로 제외
+ */
+public enum MemberSortKey {
+    ID,
+    AGE
+}
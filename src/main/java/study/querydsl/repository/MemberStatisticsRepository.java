@@ -0,0 +1,96 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.dto.TeamAgeStatistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 나이 통계. MemberAgeIndex 를 사용할 수 있으면 인덱스에서, 아니면 SQL 집계로 계산한다.
+ */
+@Repository
+public class MemberStatisticsRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberAgeIndex ageIndex;
+
+    public MemberStatisticsRepository(JPAQueryFactory queryFactory, MemberAgeIndex ageIndex) {
+        this.queryFactory = queryFactory;
+        this.ageIndex = ageIndex;
+    }
+
+    public long countByAge(Integer ageGoe, Integer ageLoe) {
+        return ageIndex.countByAge(ageGoe, ageLoe).orElseGet(() -> queryFactory
+                .select(member.count())
+                .from(member)
+                .where(ageGoe == null ? null : member.age.goe(ageGoe),
+                        ageLoe == null ? null : member.age.loe(ageLoe))
+                .fetchOne());
+    }
+
+    public AgeStatistics ageStatistics() {
+        return ageIndex.statistics().orElseGet(() -> toStatistics(queryFactory
+                .select(member.count(), member.age.sum(), member.age.avg(), member.age.max(), member.age.min())
+                .from(member)
+                .fetchOne(), 0));
+    }
+
+    /**
+     * 팀 id 순
+     */
+    public List<TeamAgeStatistics> ageStatisticsByTeam() {
+        return ageIndex.statisticsByTeam()
+                .map(this::withTeamNames)
+                .orElseGet(() -> queryFactory
+                        .select(team.id, team.name, member.count(), member.age.sum(), member.age.avg(), member.age.max(), member.age.min())
+                        .from(member)
+                        .join(member.team, team)
+                        .groupBy(team.id, team.name)
+                        .orderBy(team.id.asc())
+                        .fetch()
+                        .stream()
+                        .map(tuple -> new TeamAgeStatistics(tuple.get(team.id), tuple.get(team.name), toStatistics(tuple, 2)))
+                        .toList());
+    }
+
+    private List<TeamAgeStatistics> withTeamNames(Map<Long, AgeStatistics> byTeam) {
+        if (byTeam.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (Tuple tuple : queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .where(team.id.in(byTeam.keySet()))
+                .fetch()) {
+            names.put(tuple.get(team.id), tuple.get(team.name));
+        }
+        List<TeamAgeStatistics> result = new ArrayList<>(byTeam.size());
+        byTeam.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> result.add(new TeamAgeStatistics(entry.getKey(), names.get(entry.getKey()), entry.getValue())));
+        return result;
+    }
+
+    // sum 은 Hibernate 가 Long 으로 돌려주므로 선언 타입(Integer) 대신 Number 로 읽는다
+    private static AgeStatistics toStatistics(Tuple tuple, int offset) {
+        long count = tuple.get(offset, Number.class).longValue();
+        if (count == 0) {
+            return AgeStatistics.EMPTY;
+        }
+        return new AgeStatistics(count,
+                tuple.get(offset + 1, Number.class).longValue(),
+                tuple.get(offset + 2, Number.class).doubleValue(),
+                tuple.get(offset + 3, Number.class).intValue(),
+                tuple.get(offset + 4, Number.class).intValue());
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
@@ -37,8 +39,21 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
+    public List<Member> basicSelectFromReadOnly(){
+        return selectFromReadOnly(member)
+                .fetch();
+    }
+
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable){
-        JPAQuery<Member> query = selectFrom(member)
+        return searchPageByApplyPage(condition, pageable, false);
+    }
+
+    public Page<Member> searchPageByApplyPageReadOnly(MemberSearchCondition condition, Pageable pageable){
+        return searchPageByApplyPage(condition, pageable, true);
+    }
+
+    private Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable, boolean readOnly){
+        JPAQuery<Member> query = (readOnly ? selectFromReadOnly(member) : selectFrom(member))
                 .join(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
@@ -59,6 +74,15 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                               ageLoe(condition.getAgeLoe())));
     }
 
+    public Page<Member> applyPaginationReadOnly(MemberSearchCondition condition, Pageable pageable){
+        return applyReadOnlyPagination(pageable, query ->
+                query.selectFrom(member)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())));
+    }
+
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable){
         return applyPagination(pageable, query ->
                 query.selectFrom(member)
@@ -78,6 +102,33 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         );
     }
 
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable, PagingStrategy strategy){
+        if (strategy == PagingStrategy.DEFERRED_JOIN) {
+            return applyDeferredJoinPagination(pageable,
+                    query -> query.select(member.id)
+                            .from(member)
+                            .leftJoin(member.team, team)
+                            .where(usernameEq(condition.getUsername()),
+                                    teamNameEq(condition.getTeamName()),
+                                    ageGoe(condition.getAgeGoe()),
+                                    ageLoe(condition.getAgeLoe())),
+                    ids -> select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+                            .from(member)
+                            .leftJoin(member.team, team)
+                            .where(member.id.in(ids))
+                            .fetch(),
+                    MemberTeamDto::getMemberId);
+        }
+        return applyPagination(pageable, query ->
+                query.select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())));
+    }
+
     private BooleanExpression usernameEq(String username) {
         return isEmpty(username) ? null : member.username.eq(username);
     }
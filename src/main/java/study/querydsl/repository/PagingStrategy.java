@@ -0,0 +1,10 @@
+package study.querydsl.repository;
+
+/**
+ * 임의 정렬 페이징 방식.
+ * DEFERRED_JOIN 은 id 만 먼저 페이징한 뒤 해당 행을 id IN 으로 읽는다. (offset 이 클 때 유리)
+ */
+public enum PagingStrategy {
+    OFFSET,
+    DEFERRED_JOIN
+}
@@ -0,0 +1,141 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CursorSlice;
+import study.querydsl.repository.support.EntityStreams;
+import study.querydsl.repository.support.IdBatchLoader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@Repository
+public class TeamJpaRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final IdBatchLoader idBatchLoader;
+    private final int memberChunkSize;
+
+    public TeamJpaRepository(EntityManager em, JPAQueryFactory queryFactory, IdBatchLoader idBatchLoader,
+                             @Value("${querydsl.team-members.chunk-size:1000}") int memberChunkSize) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.idBatchLoader = idBatchLoader;
+        this.memberChunkSize = memberChunkSize;
+    }
+
+    public void save(Team team){
+        em.persist(team);
+    }
+
+    public Optional<Team> findById(Long id){
+        return Optional.ofNullable(em.find(Team.class, id));
+    }
+
+    /**
+     * ids 순서대로 팀을 조회한다. 없는 id 는 빠진다.
+     */
+    public List<Team> findAllByIds(Collection<Long> ids){
+        return idBatchLoader.load(ids,
+                (factory, chunk) -> factory.selectFrom(team).where(team.id.in(chunk)).fetch(),
+                Team::getId);
+    }
+
+    /**
+     * team.members 를 초기화하지 않고 회원 수를 센다.
+     */
+    public long countMembers(Long teamId){
+        Long count = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.team.id.eq(teamId))
+                .fetchOne();
+        return count == null ? 0L : count;
+    }
+
+    public boolean containsMember(Long teamId, Long memberId){
+        return queryFactory
+                .selectOne()
+                .from(member)
+                .where(member.team.id.eq(teamId), member.id.eq(memberId))
+                .fetchFirst() != null;
+    }
+
+    /**
+     * 팀 회원을 id 순으로 size 건씩 읽는다. cursor 는 이전 슬라이스의 nextCursor (처음엔 null)
+     */
+    public CursorSlice<Member> findMembers(Long teamId, String cursor, int size){
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        List<Member> content = membersAfter(teamId, cursor == null ? null : Long.valueOf(cursor), size + 1);
+        if (content.size() <= size) {
+            return new CursorSlice<>(content, null);
+        }
+        List<Member> slice = new ArrayList<>(content.subList(0, size));
+        return new CursorSlice<>(slice, String.valueOf(slice.get(size - 1).getId()));
+    }
+
+    /**
+     * 팀 회원을 chunk-size 건씩 id 키셋으로 나눠 읽는다.
+     * 다음 청크를 읽을 때 이전 청크를 영속성 컨텍스트에서 분리하므로 힙에는 한 청크만 남는다.
+     * 청크마다 별도 쿼리이므로 열린 커서를 잡지 않으며 순차 소비 전용이다.
+     * 트랜잭션 안이라면 분리하기 전에 flush 하므로 소비하면서 바꾼 회원의 변경은 유실되지 않는다.
+     * 이미 영속 상태였던 같은 회원도 함께 분리되므로, 호출자는 스트림 이후 그 인스턴스를 다시 조회해야 한다.
+     */
+    public Stream<Member> streamMembers(Long teamId){
+        Iterator<List<Member>> chunks = new Iterator<>() {
+            private List<Member> previous = List.of();
+            private List<Member> next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    EntityStreams.detach(em, previous);
+                    Long lastId = previous.isEmpty() ? null : previous.get(previous.size() - 1).getId();
+                    next = membersAfter(teamId, lastId, memberChunkSize);
+                    done = next.size() < memberChunkSize;
+                }
+                return next != null && !next.isEmpty();
+            }
+
+            @Override
+            public List<Member> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                previous = next;
+                next = null;
+                return previous;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .flatMap(List::stream);
+    }
+
+    private List<Member> membersAfter(Long teamId, Long lastId, int limit){
+        return queryFactory
+                .selectFrom(member)
+                .where(member.team.id.eq(teamId), lastId == null ? null : member.id.gt(lastId))
+                .orderBy(member.id.asc())
+                .limit(limit)
+                .fetch();
+    }
+}
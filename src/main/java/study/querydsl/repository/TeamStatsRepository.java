@@ -0,0 +1,88 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.dto.TeamAgeStatistics;
+
+import java.util.List;
+import java.util.Optional;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * team_stats 읽기 모델 조회. 회원이 없는 팀은 돌려주지 않는다.
+ * 엔티티가 아닌 값으로 조회하므로 같은 트랜잭션에서 JDBC 로 갱신된 내용과 어긋난 엔티티가 남지 않는다.
+ */
+@Repository
+public class TeamStatsRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamStatsUpdater updater;
+
+    public TeamStatsRepository(JPAQueryFactory queryFactory, TeamStatsUpdater updater) {
+        this.queryFactory = queryFactory;
+        this.updater = updater;
+    }
+
+    public Optional<TeamAgeStatistics> findByTeamId(Long teamId) {
+        return findAll(teamStats.teamId.eq(teamId)).stream().findFirst();
+    }
+
+    public Optional<TeamAgeStatistics> findByTeamName(String teamName) {
+        return findAll(team.name.eq(teamName)).stream().findFirst();
+    }
+
+    /**
+     * 팀 id 순
+     */
+    public List<TeamAgeStatistics> findAll() {
+        return findAll(null);
+    }
+
+    /**
+     * team_stats 를 거치지 않고 member 테이블에서 바로 집계한 값 (검증용)
+     */
+    public List<TeamAgeStatistics> findAllLive() {
+        return queryFactory
+                .select(team.id, team.name, member.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.id, team.name)
+                .orderBy(team.id.asc())
+                .fetch()
+                .stream()
+                .map(TeamStatsRepository::toTeamStatistics)
+                .toList();
+    }
+
+    public void rebuild() {
+        updater.rebuild();
+    }
+
+    private List<TeamAgeStatistics> findAll(Predicate predicate) {
+        return queryFactory
+                .select(teamStats.teamId, team.name, teamStats.memberCount, teamStats.ageSum, teamStats.minAge, teamStats.maxAge)
+                .from(teamStats)
+                .join(team).on(team.id.eq(teamStats.teamId))
+                .where(teamStats.memberCount.gt(0), predicate)
+                .orderBy(teamStats.teamId.asc())
+                .fetch()
+                .stream()
+                .map(TeamStatsRepository::toTeamStatistics)
+                .toList();
+    }
+
+    // sum 은 Hibernate 가 Long 으로 돌려주므로 선언 타입 대신 Number 로 읽는다
+    private static TeamAgeStatistics toTeamStatistics(Tuple tuple) {
+        long count = tuple.get(2, Number.class).longValue();
+        long sum = tuple.get(3, Number.class).longValue();
+        AgeStatistics statistics = new AgeStatistics(count, sum, (double) sum / count,
+                tuple.get(5, Number.class).intValue(), tuple.get(4, Number.class).intValue());
+        return new TeamAgeStatistics(tuple.get(0, Long.class), tuple.get(1, String.class), statistics);
+    }
+}
@@ -0,0 +1,408 @@
+package study.querydsl.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkWriteListener;
+import study.querydsl.repository.support.MemberRowWriteListener;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 회원 저장 / 나이·팀 변경(changeTeam) / 삭제를 team_stats 에 증분 반영한다. (querydsl.team-stats.enabled)
+ * 변경은 flush 이벤트에서 팀별 델타로 모아 두었다가 커밋 직전(BeforeTransactionCompletionProcess)에
+ * 같은 트랜잭션의 커넥션으로 적용하므로 롤백되면 함께 롤백된다.
+ *
+ * <ul>
+ *     <li>회원 수 / 합계는 델타를 더하고, 추가만 있었다면 최소 / 최대도 비교로 갱신한다.</li>
+ *     <li>팀에서 회원이 빠졌다면 그 팀의 최소 / 최대만 member 테이블에서 다시 구한다.</li>
+ *     <li>통계 행은 팀을 저장하는 트랜잭션에서 빈 값으로 만든다. 회원 변경은 이미 있는 행을 갱신만 하므로
+ *     처음 회원을 받는 트랜잭션들이 같은 행을 동시에 INSERT 하지 않는다.
+ *     JPA 밖에서 만든 팀처럼 행이 없으면 건너뛰고 TeamStatsVerifier 가 복구한다.</li>
+ *     <li>write-behind 처럼 회원 행만 JDBC 로 바꾼 쓰기(MemberRowWriteListener)는 바뀐 회원의 나이 델타로 같은 방식으로 반영한다.</li>
+ *     <li>벌크 쓰기(BulkWriteListener)가 있었던 트랜잭션은 커밋 직전에 전체를 다시 만든다.
+ *     구간마다 커밋하는 벌크 연산은 deferRebuild 로 감싸 끝난 뒤 한 번만 다시 만든다.
+ *     미루기는 그 연산의 스레드(와 withDeferral 로 넘긴 워커)에만 적용되고, 다른 쓰기는 자기 커밋에서 다시 만든다.</li>
+ * </ul>
+ * 동시에 같은 팀을 바꾸는 트랜잭션끼리 최소 / 최대가 어긋날 수 있으므로 TeamStatsVerifier 로 주기적으로 확인한다.
+ * 통계 행은 회원 변경과 같은 트랜잭션에서 갱신되므로 한 팀으로 회원이 몰리면 그 행의 락을 커밋까지 잡고 줄을 선다.
+ * (TeamMembershipService 처럼 team_id 만 바꾸는 이동도 마찬가지다)
+ * 정확한 통계 대신 쓰기 처리량이 중요하면 querydsl.team-stats.enabled=false 로 끄고 member 테이블에서 직접 집계한다.
+ */
+@Slf4j
+@Component
+public class TeamStatsUpdater implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        BulkWriteListener, MemberRowWriteListener {
+
+    private static final Set<String> TABLES = Set.of("member", "team");
+
+    private static final ThreadLocal<Deferral> DEFERRAL = new ThreadLocal<>();
+
+    private static final String ADD = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ? where team_id = ?";
+    private static final String WIDEN = "update team_stats set" +
+            " min_age = case when min_age is null or min_age > ? then ? else min_age end," +
+            " max_age = case when max_age is null or max_age < ? then ? else max_age end" +
+            " where team_id = ?";
+    private static final String RECOMPUTE_EXTREMES = "update team_stats set" +
+            " min_age = (select min(age) from member where team_id = ?)," +
+            " max_age = (select max(age) from member where team_id = ?)" +
+            " where team_id = ?";
+    private static final String CREATE_TEAM = "insert into team_stats (team_id, member_count, age_sum) values (?, 0, 0)";
+    private static final String DELETE_TEAM = "delete from team_stats where team_id = ?";
+    private static final String DELETE_ALL = "delete from team_stats";
+    private static final String INSERT_FROM_MEMBERS = "insert into team_stats (team_id, member_count, age_sum, min_age, max_age)" +
+            " select t.team_id, count(m.id), coalesce(sum(m.age), 0), min(m.age), max(m.age)" +
+            " from team t left join member m on m.team_id = t.team_id" +
+            " group by t.team_id";
+
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Map<SessionImplementor, Pending> pending = new ConcurrentHashMap<>();
+
+    public TeamStatsUpdater(EntityManagerFactory emf, EntityManager em, JdbcTemplate jdbcTemplate,
+                            @Value("${querydsl.team-stats.enabled:true}") boolean enabled) {
+        this.emf = emf;
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    /**
+     * member 테이블로부터 team_stats 전체를 다시 만든다. 트랜잭션 안에서 호출하면 그 커넥션을 사용한다.
+     */
+    public void rebuild() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.unwrap(Session.class).doWork(TeamStatsUpdater::rebuildAll);
+        } else {
+            jdbcTemplate.execute((Connection connection) -> {
+                rebuildAll(connection);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * work 가 끝날 때까지 이 스레드의 벌크 쓰기로 인한 전체 재생성을 미뤘다가 필요하면 한 번만 한다.
+     * 그 사이 team_stats 는 이전 값을 보여 준다. work 가 다른 스레드에서 쓰려면 withDeferral 로 감싸 넘긴다.
+     * work 가 실패해도 이미 커밋된 구간이 있을 수 있으므로 다시 만든다.
+     */
+    public <T> T deferRebuild(Supplier<T> work) {
+        if (!enabled || DEFERRAL.get() != null) {
+            return work.get();
+        }
+        Deferral deferral = new Deferral();
+        DEFERRAL.set(deferral);
+        try {
+            return work.get();
+        } finally {
+            DEFERRAL.remove();
+            if (deferral.close()) {
+                requestRebuild();
+            }
+        }
+    }
+
+    /**
+     * 호출 스레드의 deferRebuild 를 워커 스레드에서도 이어 받도록 감싼다. deferRebuild 밖이면 그대로 돌려준다.
+     */
+    public <T> Callable<T> withDeferral(Callable<T> task) {
+        Deferral deferral = DEFERRAL.get();
+        if (deferral == null) {
+            return task;
+        }
+        return () -> {
+            DEFERRAL.set(deferral);
+            try {
+                return task.call();
+            } finally {
+                DEFERRAL.remove();
+            }
+        };
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).createdTeams.add((Long) event.getId());
+        } else if (event.getEntity() instanceof Member) {
+            Object[] state = event.getState();
+            pending(event.getSession()).add(teamId(event.getPersister(), state), age(event.getPersister(), state));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] oldState = event.getOldState();
+        Pending changes = pending(event.getSession());
+        if (oldState == null) {
+            // 이전 값을 모르면 어느 팀에서 빠졌는지 알 수 없다
+            changes.fullRebuild = true;
+            return;
+        }
+        Long oldTeamId = teamId(persister, oldState);
+        int oldAge = age(persister, oldState);
+        Long newTeamId = teamId(persister, event.getState());
+        int newAge = age(persister, event.getState());
+        if (oldAge == newAge && Objects.equals(oldTeamId, newTeamId)) {
+            return;
+        }
+        changes.remove(oldTeamId, oldAge);
+        changes.add(newTeamId, newAge);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).deletedTeams.add((Long) event.getId());
+            return;
+        }
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        Object[] deletedState = event.getDeletedState();
+        Pending changes = pending(event.getSession());
+        if (deletedState == null) {
+            changes.fullRebuild = true;
+            return;
+        }
+        changes.remove(teamId(event.getPersister(), deletedState), age(event.getPersister(), deletedState));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        if (!enabled || !TABLES.contains(table)) {
+            return;
+        }
+        Deferral deferral = DEFERRAL.get();
+        if (deferral != null && deferral.mark()) {
+            return;
+        }
+        requestRebuild();
+    }
+
+    @Override
+    public void onMembersUpdated(List<Change> changes) {
+        if (!enabled || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        Pending deltas = null;
+        for (Change change : changes) {
+            if (!change.ageChanged()) {
+                continue;
+            }
+            if (deltas == null) {
+                deltas = pending(em.unwrap(SessionImplementor.class));
+            }
+            deltas.remove(change.teamId(), change.oldAge());
+            deltas.add(change.teamId(), change.newAge());
+        }
+    }
+
+    private void requestRebuild() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            pending(em.unwrap(SessionImplementor.class)).fullRebuild = true;
+        } else {
+            rebuild();
+        }
+    }
+
+    private Pending pending(SessionImplementor session) {
+        return pending.computeIfAbsent(session, s -> {
+            Pending changes = new Pending();
+            s.getActionQueue().registerProcess(changes);
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(s));
+            return changes;
+        });
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        return team == null ? null : ((Team) team).getId();
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private static void rebuildAll(Connection connection) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_ALL);
+             PreparedStatement insert = connection.prepareStatement(INSERT_FROM_MEMBERS)) {
+            delete.executeUpdate();
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * deferRebuild 한 번에 속한 스레드들이 공유하는 표시. 이미 끝난 뒤에 표시하려는 워커는 직접 다시 만든다.
+     */
+    private static final class Deferral {
+        private boolean rebuild;
+        private boolean closed;
+
+        synchronized boolean mark() {
+            if (closed) {
+                return false;
+            }
+            rebuild = true;
+            return true;
+        }
+
+        synchronized boolean close() {
+            closed = true;
+            return rebuild;
+        }
+    }
+
+    private static final class Delta {
+        private long count;
+        private long sum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private boolean removed;
+    }
+
+    /**
+     * 한 세션(트랜잭션)에서 모은 팀별 변경
+     */
+    private final class Pending implements BeforeTransactionCompletionProcess {
+
+        private final Map<Long, Delta> deltas = new HashMap<>();
+        private final Set<Long> createdTeams = new HashSet<>();
+        private final Set<Long> deletedTeams = new HashSet<>();
+        private boolean fullRebuild;
+
+        void add(Long teamId, int age) {
+            if (teamId == null) {
+                return;
+            }
+            Delta delta = deltas.computeIfAbsent(teamId, id -> new Delta());
+            delta.count++;
+            delta.sum += age;
+            delta.addedMin = delta.addedMin == null ? age : Math.min(delta.addedMin, age);
+            delta.addedMax = delta.addedMax == null ? age : Math.max(delta.addedMax, age);
+        }
+
+        void remove(Long teamId, int age) {
+            if (teamId == null) {
+                return;
+            }
+            Delta delta = deltas.computeIfAbsent(teamId, id -> new Delta());
+            delta.count--;
+            delta.sum -= age;
+            delta.removed = true;
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            pending.remove(session);
+            if (!fullRebuild && deltas.isEmpty() && createdTeams.isEmpty() && deletedTeams.isEmpty()) {
+                return;
+            }
+            session.doWork(this::apply);
+        }
+
+        private void apply(Connection connection) throws SQLException {
+            if (fullRebuild) {
+                rebuildAll(connection);
+                return;
+            }
+            try (PreparedStatement create = connection.prepareStatement(CREATE_TEAM);
+                 PreparedStatement add = connection.prepareStatement(ADD);
+                 PreparedStatement widen = connection.prepareStatement(WIDEN);
+                 PreparedStatement recompute = connection.prepareStatement(RECOMPUTE_EXTREMES);
+                 PreparedStatement deleteTeam = connection.prepareStatement(DELETE_TEAM)) {
+                for (Long teamId : createdTeams) {
+                    if (!deletedTeams.contains(teamId)) {
+                        create.setLong(1, teamId);
+                        create.executeUpdate();
+                    }
+                }
+                for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+                    long teamId = entry.getKey();
+                    Delta delta = entry.getValue();
+                    if (deletedTeams.contains(teamId)) {
+                        continue;
+                    }
+                    add.setLong(1, delta.count);
+                    add.setLong(2, delta.sum);
+                    add.setLong(3, teamId);
+                    if (add.executeUpdate() == 0) {
+                        log.warn("team_stats row of team {} is missing, skipping the delta until TeamStatsVerifier repairs it", teamId);
+                    } else if (delta.removed) {
+                        recompute.setLong(1, teamId);
+                        recompute.setLong(2, teamId);
+                        recompute.setLong(3, teamId);
+                        recompute.executeUpdate();
+                    } else if (delta.addedMin != null) {
+                        widen.setInt(1, delta.addedMin);
+                        widen.setInt(2, delta.addedMin);
+                        widen.setInt(3, delta.addedMax);
+                        widen.setInt(4, delta.addedMax);
+                        widen.setLong(5, teamId);
+                        widen.executeUpdate();
+                    }
+                }
+                for (Long teamId : deletedTeams) {
+                    deleteTeam.setLong(1, teamId);
+                    deleteTeam.executeUpdate();
+                }
+            }
+        }
+    }
+}
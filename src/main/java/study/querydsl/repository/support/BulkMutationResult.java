@@ -0,0 +1,10 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+
+public record BulkMutationResult(long affectedRows, int chunks, Duration elapsed) {
+
+    public static BulkMutationResult empty() {
+        return new BulkMutationResult(0, 0, Duration.ZERO);
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.repository.support;
+
+import java.util.function.Consumer;
+
+/**
+ * 벌크 연산 분할 옵션.
+ * parallelism 은 호출 측 트랜잭션이 없을 때만 적용되고, progress 는 워커 스레드에서 호출될 수 있다.
+ */
+public record BulkOptions(int chunkSize, int parallelism, Consumer<ChunkResult> progress) {
+
+    public BulkOptions {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+        }
+        if (progress == null) {
+            progress = chunk -> { };
+        }
+    }
+
+    public static BulkOptions chunkSize(int chunkSize) {
+        return new BulkOptions(chunkSize, 1, null);
+    }
+
+    public BulkOptions parallelism(int parallelism) {
+        return new BulkOptions(chunkSize, parallelism, progress);
+    }
+
+    public BulkOptions progress(Consumer<ChunkResult> progress) {
+        return new BulkOptions(chunkSize, parallelism, progress);
+    }
+
+    public record ChunkResult(int chunk, long fromId, long toId, long affectedRows) {
+    }
+}
@@ -0,0 +1,10 @@
+package study.querydsl.repository.support;
+
+/**
+ * 엔티티 액션(persist / 변경 감지 / remove)을 거치지 않은 쓰기 SQL 이 실행될 때 대상 테이블 이름(소문자)으로 호출된다.
+ * Querydsl/JPQL 벌크 update·delete 와 Hibernate 를 통한 네이티브 쿼리가 여기에 해당한다.
+ * 이런 쓰기는 엔티티 이벤트가 없으므로 이벤트로 유지하는 파생 데이터는 다시 만들어야 한다.
+ */
+public interface BulkWriteListener {
+    void onBulkWrite(String table);
+}
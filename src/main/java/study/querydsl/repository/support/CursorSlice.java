@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 커서 기반 조회 결과. nextCursor 가 null 이면 마지막 슬라이스
+ */
+@Getter
+public class CursorSlice<T> {
+    private final List<T> content;
+    private final String nextCursor;
+
+    public CursorSlice(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
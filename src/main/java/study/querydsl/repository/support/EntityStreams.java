@@ -0,0 +1,44 @@
+package study.querydsl.repository.support;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public final class EntityStreams {
+
+    private EntityStreams() {
+    }
+
+    /**
+     * 엔티티 스트림을 chunkSize 건 단위로 영속성 컨텍스트에서 분리한다.
+     * 다음 청크의 첫 건을 넘겨줄 때 이전 청크를 detach 하므로 소비 중인 엔티티는 항상 영속 상태다.
+ * 분리하기 전에 flush 하므로 소비하면서 바꾼 엔티티의 변경은 유실되지 않는다.
+     * 순차 스트림 전용
+     */
+    public static <T> Stream<T> detachEvery(EntityManager em, Stream<T> stream, int chunkSize) {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        return stream.map(entity -> {
+            if (chunk.size() == chunkSize) {
+                detach(em, chunk);
+                chunk.clear();
+            }
+            chunk.add(entity);
+            return entity;
+        });
+    }
+
+    /**
+     * 트랜잭션 안이라면 먼저 flush 해서 변경을 반영한 뒤 영속성 컨텍스트에서 분리한다.
+     */
+    public static void detach(EntityManager em, List<?> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        }
+        entities.forEach(em::detach);
+    }
+}
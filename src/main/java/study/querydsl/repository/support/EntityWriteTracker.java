@@ -0,0 +1,117 @@
+package study.querydsl.repository.support;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 쓰기 SQL 이 엔티티 액션에서 나온 것인지 구분해 벌크 쓰기만 BulkWriteListener 들에게 알린다.
+ * Pre* 이벤트에서 표시하고 그 액션의 SQL 이 준비될 때 소비한다.
+ * JDBC 배치로 묶여 SQL 을 새로 준비하지 않는 액션도 있으므로 Post* 이벤트에서 항상 지운다.
+ */
+@Component
+public class EntityWriteTracker implements TableWriteListener, PreInsertEventListener, PreUpdateEventListener,
+        PreDeleteEventListener, PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final ThreadLocal<Boolean> ENTITY_ACTION = new ThreadLocal<>();
+
+    private final EntityManagerFactory emf;
+    private final ObjectProvider<BulkWriteListener> listenerProvider;
+    private volatile List<BulkWriteListener> listeners;
+
+    public EntityWriteTracker(EntityManagerFactory emf, ObjectProvider<BulkWriteListener> listenerProvider) {
+        this.emf = emf;
+        this.listenerProvider = listenerProvider;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_INSERT, this);
+        registry.appendListeners(EventType.PRE_UPDATE, this);
+        registry.appendListeners(EventType.PRE_DELETE, this);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onTableWrite(String table) {
+        if (Boolean.TRUE.equals(ENTITY_ACTION.get())) {
+            ENTITY_ACTION.remove();
+            return;
+        }
+        for (BulkWriteListener listener : listeners()) {
+            listener.onBulkWrite(table);
+        }
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        ENTITY_ACTION.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        ENTITY_ACTION.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        ENTITY_ACTION.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        ENTITY_ACTION.remove();
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        ENTITY_ACTION.remove();
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        ENTITY_ACTION.remove();
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    // 리스너 빈이 EntityManagerFactory 에 의존할 수 있으므로 처음 사용하는 시점에 조회한다
+    private List<BulkWriteListener> listeners() {
+        List<BulkWriteListener> current = listeners;
+        if (current == null) {
+            current = listenerProvider.orderedStream().toList();
+            listeners = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * id 목록을 chunk-size 개씩 나눠 IN 쿼리로 조회하고 호출자가 넘긴 id 순서대로 돌려준다.
+ * IN 목록 길이를 2 의 거듭제곱으로 맞춰(마지막 id 반복) id 개수마다 다른 SQL 이 만들어지지 않게 한다.
+ * parallel 이면 chunk 를 별도 읽기 전용 EntityManager 에서 동시에 조회하므로 결과는 준영속 상태다.
+ * 읽기-쓰기 트랜잭션 안에서는 flush 되지 않은 변경이 보이도록 항상 현재 EntityManager 로 순차 조회한다.
+ */
+@Component
+public class IdBatchLoader implements DisposableBean {
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+    private final boolean parallel;
+    private final ExecutorService executor;
+
+    public IdBatchLoader(JPAQueryFactory queryFactory,
+                         EntityManagerFactory emf,
+                         @Value("${querydsl.id-batch.chunk-size:512}") int chunkSize,
+                         @Value("${querydsl.id-batch.parallel:false}") boolean parallel,
+                         @Value("${querydsl.id-batch.threads:4}") int threads) {
+        this.queryFactory = queryFactory;
+        this.emf = emf;
+        this.chunkSize = chunkSize;
+        this.parallel = parallel;
+        // 큐가 가득 차면 호출 스레드에서 실행 → 직렬 실행으로 후퇴
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                new CustomizableThreadFactory("id-batch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param query chunk 하나(패딩된 id 목록)를 조회하는 쿼리
+     * @param idOf  결과에서 id 를 꺼내는 함수
+     * @return 중복을 제거한 ids 순서대로 정렬된 결과. 없는 id 는 빠진다.
+     */
+    public <T, ID> List<T> load(Collection<ID> ids, BiFunction<JPAQueryFactory, List<ID>, List<T>> query, Function<T, ID> idOf) {
+        List<ID> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinct.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<List<ID>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(pad(distinct.subList(from, Math.min(distinct.size(), from + chunkSize))));
+        }
+
+        Map<ID, T> byId = new HashMap<>(distinct.size() * 2);
+        if (chunks.size() > 1 && parallel && !inReadWriteTransaction()) {
+            List<Future<List<T>>> futures = new ArrayList<>(chunks.size());
+            for (List<ID> chunk : chunks) {
+                futures.add(executor.submit(() -> loadDetached(chunk, query)));
+            }
+            for (Future<List<T>> future : futures) {
+                await(future).forEach(row -> byId.put(idOf.apply(row), row));
+            }
+        } else {
+            for (List<ID> chunk : chunks) {
+                query.apply(queryFactory, chunk).forEach(row -> byId.put(idOf.apply(row), row));
+            }
+        }
+
+        List<T> result = new ArrayList<>(byId.size());
+        for (ID id : distinct) {
+            T row = byId.get(id);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 다음 2 의 거듭제곱 길이가 되도록 마지막 id 를 반복한다. 예) 5 개 → 8 개
+     */
+    static <ID> List<ID> pad(List<ID> ids) {
+        int padded = Integer.highestOneBit(ids.size());
+        if (padded < ids.size()) {
+            padded <<= 1;
+        }
+        List<ID> result = new ArrayList<>(padded);
+        result.addAll(ids);
+        ID last = ids.get(ids.size() - 1);
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+
+    private <T, ID> List<T> loadDetached(List<ID> chunk, BiFunction<JPAQueryFactory, List<ID>, List<T>> query) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return query.apply(new JPAQueryFactory(em), chunk);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static <T> List<T> await(Future<List<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading ids", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Id batch query failed", e.getCause());
+        }
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Querydsl JPAQuery 에 Hibernate 힌트를 붙이는 헬퍼
+ * <pre>
+ * cacheable(queryFactory.selectFrom(team).where(team.name.eq(name))).fetchOne();
+ * </pre>
+ */
+public final class JPAQueryHints {
+
+    public static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+
+    private JPAQueryHints() {
+    }
+
+    /**
+     * 2차 캐시의 쿼리 캐시를 사용한다. 결과 엔티티 자체도 캐시 대상이어야 효과가 있다.
+     */
+    public static <T> JPAQuery<T> cacheable(JPAQuery<T> query) {
+        return cacheable(query, DEFAULT_QUERY_REGION);
+    }
+
+    public static <T> JPAQuery<T> cacheable(JPAQuery<T> query, String region) {
+        return query
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, region);
+    }
+
+    /**
+     * 읽기 전용으로 조회한다. 결과 엔티티의 dirty checking 스냅샷을 만들지 않고, 조회 전 자동 flush 도 건너뛴다.
+     * 결과 엔티티를 수정해도 DB 에 반영되지 않으며, 같은 트랜잭션의 flush 전 변경 사항은 보이지 않을 수 있다.
+     */
+    public static <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return query
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.COMMIT);
+    }
+}
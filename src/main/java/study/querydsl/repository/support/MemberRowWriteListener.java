@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import java.util.List;
+
+/**
+ * 엔티티 이벤트 없이 id 로 정한 회원 행만 JDBC 로 바꿨을 때(write-behind 등) 바뀐 회원 목록으로 호출된다.
+ * 쓰기 트랜잭션 안에서 호출되므로 파생 데이터는 전체를 다시 만들지 않고 이 회원들만 반영하면 된다.
+ * 커밋 후에 반영해야 하는 쪽은 트랜잭션 동기화를 등록한다.
+ */
+public interface MemberRowWriteListener {
+
+    void onMembersUpdated(List<Change> changes);
+
+    /**
+     * 팀은 바뀌지 않는다. 나이를 바꾸지 않았으면 oldAge == newAge
+     */
+    record Change(Long memberId, Long teamId, int oldAge, int newAge) {
+
+        public boolean ageChanged() {
+            return oldAge != newAge;
+        }
+    }
+}
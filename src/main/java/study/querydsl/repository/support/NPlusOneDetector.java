@@ -0,0 +1,117 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * 한 트랜잭션(트랜잭션이 없으면 한 요청) 안에서 같은 키 조회 SELECT 가 threshold 번을 넘게 반복되면 N+1 로 본다.
+ * 지연 로딩(Member.team 프록시, Team.members 컬렉션)과 반복된 em.find 가 여기에 해당한다.
+ * sample-rate 비율의 트랜잭션만 추적하므로 운영에서는 낮은 비율의 WARN 모드로 켜 둘 수 있다.
+ */
+@Slf4j
+@Component
+public class NPlusOneDetector implements SqlStatementListener {
+
+    public enum Mode {
+        OFF, WARN, FAIL
+    }
+
+    // where 절이 키 하나(=, in, = any) 로만 이루어진 조회
+    private static final Pattern KEY_LOOKUP = Pattern.compile(
+            "^select\\s.+\\swhere\\s+[\\w.]+\\s*(?:=\\s*\\?|=\\s*any\\s*\\(\\s*\\?\\s*\\)|in\\s*\\((?:\\s*\\?\\s*,?)+\\))\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final String SUPPORT_PACKAGE = NPlusOneDetector.class.getPackageName();
+    private static final Scope NOT_SAMPLED = new Scope();
+    private static final ThreadLocal<Scope> REQUEST_SCOPE = new ThreadLocal<>();
+
+    private final Mode mode;
+    private final int threshold;
+    private final double sampleRate;
+
+    public NPlusOneDetector(@Value("${querydsl.n-plus-one.mode:WARN}") Mode mode,
+                            @Value("${querydsl.n-plus-one.threshold:5}") int threshold,
+                            @Value("${querydsl.n-plus-one.sample-rate:0.1}") double sampleRate) {
+        this.mode = mode;
+        this.threshold = threshold;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void onStatement(String sql) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        Scope scope = currentScope();
+        if (scope == null || scope == NOT_SAMPLED) {
+            return;
+        }
+        String statement = SqlStatementInspector.stripLeadingComments(sql);
+        if (!KEY_LOOKUP.matcher(statement).matches()) {
+            return;
+        }
+        int executions = scope.counts.merge(statement, 1, Integer::sum);
+        if (executions == threshold + 1) {
+            report(statement, executions);
+        }
+    }
+
+    /**
+     * 트랜잭션 밖의 작업(예: open-in-view 요청)을 하나의 감지 범위로 묶는다.
+     */
+    public void beginRequest() {
+        REQUEST_SCOPE.set(sample());
+    }
+
+    public void endRequest() {
+        REQUEST_SCOPE.remove();
+    }
+
+    private Scope currentScope() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Scope scope = (Scope) TransactionSynchronizationManager.getResource(this);
+            if (scope == null) {
+                scope = sample();
+                TransactionSynchronizationManager.bindResource(this, scope);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(NPlusOneDetector.this);
+                    }
+                });
+            }
+            return scope;
+        }
+        return REQUEST_SCOPE.get();
+    }
+
+    private Scope sample() {
+        return ThreadLocalRandom.current().nextDouble() < sampleRate ? new Scope() : NOT_SAMPLED;
+    }
+
+    private void report(String statement, int executions) {
+        String callSite = StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("study.querydsl")
+                        && !frame.getClassName().startsWith(SUPPORT_PACKAGE))
+                .findFirst()
+                .map(StackWalker.StackFrame::toString)
+                .orElse("unknown"));
+        String message = "N+1 query suspected: executed " + executions + " times (threshold " + threshold
+                + ") at " + callSite + ": " + statement;
+        if (mode == Mode.FAIL) {
+            throw new NPlusOneQueryException(message);
+        }
+        log.warn(message);
+    }
+
+    private static class Scope {
+        private final Map<String, Integer> counts = new HashMap<>();
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydsl.repository.support;
+
+public class NPlusOneQueryException extends RuntimeException {
+
+    public NPlusOneQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,126 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 페이징 조회의 count 쿼리를 별도 읽기 전용 EntityManager 에서 컨텐츠 쿼리와 동시에 실행한다.
+ * count 는 호출한 트랜잭션 밖에서 돌기 때문에 아직 커밋되지 않은 변경은 집계되지 않는다. (기본값 비활성)
+ */
+@Component
+public class ParallelCountExecutor implements DisposableBean {
+
+    private final EntityManagerFactory emf;
+    private final boolean enabled;
+    private final ExecutorService executor;
+
+    public ParallelCountExecutor(EntityManagerFactory emf,
+                                 @Value("${querydsl.parallel-count.enabled:false}") boolean enabled,
+                                 @Value("${querydsl.parallel-count.threads:4}") int threads,
+                                 @Value("${querydsl.parallel-count.queue-size:100}") int queueSize) {
+        this.emf = emf;
+        this.enabled = enabled;
+        // 큐가 가득 차면 호출 스레드에서 실행 → 직렬 실행으로 자연스럽게 후퇴
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new CustomizableThreadFactory("parallel-count-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * count 를 먼저 제출하고 컨텐츠를 조회한다.
+     * PageableExecutionUtils 가 count 를 요구하지 않으면 제출한 count 는 취소된다.
+     */
+    public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, Function<JPAQueryFactory, Long> countQuery) {
+        if (pageable.isUnpaged()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, () -> 0L);
+        }
+        PendingCount total = submit(countQuery);
+        try {
+            return PageableExecutionUtils.getPage(content.get(), pageable, total);
+        } finally {
+            total.cancelIfUnused();
+        }
+    }
+
+    public PendingCount submit(Function<JPAQueryFactory, Long> countQuery) {
+        return new PendingCount(executor.submit(() -> count(countQuery)));
+    }
+
+    private Long count(Function<JPAQueryFactory, Long> countQuery) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return countQuery.apply(new JPAQueryFactory(em));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public static class PendingCount implements LongSupplier {
+        private final Future<Long> future;
+        private volatile boolean used;
+
+        PendingCount(Future<Long> future) {
+            this.future = future;
+        }
+
+        @Override
+        public long getAsLong() {
+            used = true;
+            try {
+                Long count = future.get();
+                return count == null ? 0L : count;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for count query", e);
+            } catch (CancellationException e) {
+                throw new IllegalStateException("Count query was cancelled", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Count query failed", e.getCause());
+            }
+        }
+
+        void cancelIfUnused() {
+            if (!used) {
+                future.cancel(true);
+            }
+        }
+    }
+}
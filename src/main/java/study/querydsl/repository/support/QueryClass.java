@@ -0,0 +1,15 @@
+package study.querydsl.repository.support;
+
+/**
+ * QueryScheduler 가 동시 실행 수를 따로 관리하는 쿼리 종류.
+ */
+public enum QueryClass {
+    /** 페이지 / 목록 컨텐츠 조회 */
+    CONTENT,
+    /** 페이징 count 조회 */
+    COUNT,
+    /** 벌크 update / delete */
+    BULK,
+    /** 스트림으로 끝까지 읽는 내보내기 조회 */
+    EXPORT
+}
@@ -0,0 +1,21 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * QueryScheduler 의 대기열이 가득 찼거나 max-wait 안에 자리를 얻지 못해 쿼리를 실행하지 않았다.
+ * 일시적인 과부하이므로 웹 요청에서는 503 으로 응답한다.
+ */
+@Getter
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class QueryRejectedException extends RuntimeException {
+
+    private final QueryClass queryClass;
+
+    public QueryRejectedException(QueryClass queryClass, String message) {
+        super(message);
+        this.queryClass = queryClass;
+    }
+}
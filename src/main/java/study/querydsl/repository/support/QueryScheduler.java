@@ -0,0 +1,171 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 쿼리 종류(QueryClass)별로 동시 실행 수를 제한해 느린 count / 벌크 / 내보내기가 커넥션을 모두 차지하지 못하게 한다.
+ * 자리가 없으면 max-waiters 개까지 max-wait 동안 기다리고, 대기열이 가득 찼거나 시간이 지나면 QueryRejectedException 을 던진다.
+ * max-wait 는 종류별로 둘 수 있고, 없으면 querydsl.query-scheduler.max-wait 를 쓴다.
+ * 같은 스레드가 이미 같은 종류의 자리를 잡고 있으면 그대로 실행한다. (중첩 호출 교착 방지)
+ */
+@Component
+public class QueryScheduler implements MeterBinder {
+
+    private static final ThreadLocal<Set<QueryClass>> HELD = ThreadLocal.withInitial(() -> EnumSet.noneOf(QueryClass.class));
+
+    private final boolean enabled;
+    private final Map<QueryClass, Lane> lanes = new EnumMap<>(QueryClass.class);
+
+    public QueryScheduler(@Value("${querydsl.query-scheduler.enabled:false}") boolean enabled,
+                          @Value("${querydsl.query-scheduler.content.concurrency:6}") int contentConcurrency,
+                          @Value("${querydsl.query-scheduler.content.max-waiters:200}") int contentWaiters,
+                          @Value("${querydsl.query-scheduler.content.max-wait:${querydsl.query-scheduler.max-wait:2s}}") Duration contentMaxWait,
+                          @Value("${querydsl.query-scheduler.count.concurrency:2}") int countConcurrency,
+                          @Value("${querydsl.query-scheduler.count.max-waiters:50}") int countWaiters,
+                          @Value("${querydsl.query-scheduler.count.max-wait:${querydsl.query-scheduler.max-wait:2s}}") Duration countMaxWait,
+                          @Value("${querydsl.query-scheduler.bulk.concurrency:1}") int bulkConcurrency,
+                          @Value("${querydsl.query-scheduler.bulk.max-waiters:4}") int bulkWaiters,
+                          @Value("${querydsl.query-scheduler.bulk.max-wait:${querydsl.query-scheduler.max-wait:2s}}") Duration bulkMaxWait,
+                          @Value("${querydsl.query-scheduler.export.concurrency:1}") int exportConcurrency,
+                          @Value("${querydsl.query-scheduler.export.max-waiters:4}") int exportWaiters,
+                          @Value("${querydsl.query-scheduler.export.max-wait:${querydsl.query-scheduler.max-wait:2s}}") Duration exportMaxWait) {
+        this.enabled = enabled;
+        lanes.put(QueryClass.CONTENT, new Lane(contentConcurrency, contentWaiters, contentMaxWait));
+        lanes.put(QueryClass.COUNT, new Lane(countConcurrency, countWaiters, countMaxWait));
+        lanes.put(QueryClass.BULK, new Lane(bulkConcurrency, bulkWaiters, bulkMaxWait));
+        lanes.put(QueryClass.EXPORT, new Lane(exportConcurrency, exportWaiters, exportMaxWait));
+    }
+
+    public <T> T run(QueryClass queryClass, Supplier<T> query) {
+        if (!enabled || HELD.get().contains(queryClass)) {
+            return query.get();
+        }
+        Lane lane = lanes.get(queryClass);
+        lane.acquire(queryClass);
+        HELD.get().add(queryClass);
+        try {
+            return query.get();
+        } finally {
+            HELD.get().remove(queryClass);
+            lane.permits.release();
+        }
+    }
+
+    /**
+     * 호출할 때 COUNT 자리를 잡는 count. PageableExecutionUtils 가 count 를 생략하면 자리도 잡지 않는다.
+     */
+    public LongSupplier count(LongSupplier count) {
+        return () -> run(QueryClass.COUNT, count::getAsLong);
+    }
+
+    /**
+     * 스트림을 여는 순간부터 close 할 때까지 자리를 잡는다. 반드시 close 해야 한다.
+     */
+    public <T> Stream<T> stream(QueryClass queryClass, Supplier<Stream<T>> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        Lane lane = lanes.get(queryClass);
+        lane.acquire(queryClass);
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                lane.permits.release();
+            }
+        };
+        try {
+            return query.get().onClose(release);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        lanes.forEach((queryClass, lane) -> {
+            String name = queryClass.name().toLowerCase();
+            Gauge.builder("query.scheduler.queue.depth", lane.waiting, AtomicInteger::get)
+                    .description("Queries waiting for a slot")
+                    .tag("class", name)
+                    .register(registry);
+            Gauge.builder("query.scheduler.active", lane, l -> l.concurrency - l.permits.availablePermits())
+                    .tag("class", name)
+                    .register(registry);
+            FunctionTimer.builder("query.scheduler.wait", lane,
+                            l -> l.waits.get(), l -> l.waitNanos.get(), TimeUnit.NANOSECONDS)
+                    .description("Time spent waiting for a slot")
+                    .tag("class", name)
+                    .register(registry);
+            FunctionCounter.builder("query.scheduler.rejected", lane.rejected, AtomicLong::get)
+                    .description("Queries rejected because the queue was full or max-wait elapsed")
+                    .tag("class", name)
+                    .register(registry);
+        });
+    }
+
+    private static final class Lane {
+        private final int concurrency;
+        private final int maxWaiters;
+        private final Duration maxWait;
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong waits = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        private Lane(int concurrency, int maxWaiters, Duration maxWait) {
+            this.concurrency = concurrency;
+            this.maxWaiters = maxWaiters;
+            this.maxWait = maxWait;
+            this.permits = new Semaphore(concurrency, true);
+        }
+
+        void acquire(QueryClass queryClass) {
+            if (permits.tryAcquire()) {
+                return;
+            }
+            if (waiting.incrementAndGet() > maxWaiters) {
+                waiting.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new QueryRejectedException(queryClass, queryClass + " query queue is full (" + maxWaiters + " waiting)");
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryRejectedException(queryClass, "Interrupted while waiting for a " + queryClass + " query slot");
+            } finally {
+                waiting.decrementAndGet();
+                waits.incrementAndGet();
+                waitNanos.addAndGet(System.nanoTime() - start);
+            }
+            if (!acquired) {
+                rejected.incrementAndGet();
+                throw new QueryRejectedException(queryClass, "No " + queryClass + " query slot within " + maxWait.toMillis() + " ms");
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.repository.support;
+
+/**
+ * 현재 스레드에서 실행된 SQL 문장 수와 로딩된 엔티티 수.
+ * 누적값이므로 호출 전후 차이로 한 호출의 양을 구한다.
+ */
+public final class QueryStatistics {
+
+    private static final ThreadLocal<long[]> COUNTS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private QueryStatistics() {
+    }
+
+    static void statementPrepared() {
+        COUNTS.get()[0]++;
+    }
+
+    static void entityLoaded() {
+        COUNTS.get()[1]++;
+    }
+
+    public static long statements() {
+        return COUNTS.get()[0];
+    }
+
+    public static long entitiesLoaded() {
+        return COUNTS.get()[1];
+    }
+}
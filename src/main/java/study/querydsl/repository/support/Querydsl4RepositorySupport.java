@@ -19,9 +19,14 @@ import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Repository
 public class Querydsl4RepositorySupport {
@@ -29,6 +34,9 @@ public class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private ParallelCountExecutor countExecutor;
+    private RepositoryMetrics repositoryMetrics;
+    private QueryScheduler queryScheduler;
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
@@ -45,11 +53,26 @@ public class Querydsl4RepositorySupport {
                 PathBuilder<>(path.getType(), path.getMetadata()));
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
+    @Autowired
+    public void setCountExecutor(ParallelCountExecutor countExecutor) {
+        this.countExecutor = countExecutor;
+    }
+    @Autowired
+    public void setRepositoryMetrics(RepositoryMetrics repositoryMetrics) {
+        this.repositoryMetrics = repositoryMetrics;
+    }
+    @Autowired
+    public void setQueryScheduler(QueryScheduler queryScheduler) {
+        this.queryScheduler = queryScheduler;
+    }
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(countExecutor, "ParallelCountExecutor must not be null!");
+        Assert.notNull(repositoryMetrics, "RepositoryMetrics must not be null!");
+        Assert.notNull(queryScheduler, "QueryScheduler must not be null!");
     }
     protected JPAQueryFactory getQueryFactory() {
         return queryFactory;
@@ -66,19 +89,87 @@ public class Querydsl4RepositorySupport {
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
         return getQueryFactory().selectFrom(from);
     }
+    /**
+     * 읽기 전용 조회. 결과 엔티티는 스냅샷 없이 로딩되어 flush 시 비교 대상에서 빠진다.
+     */
+    protected <T> JPAQuery<T> selectFromReadOnly(EntityPath<T> from) {
+        return JPAQueryHints.readOnly(getQueryFactory().selectFrom(from));
+    }
+    protected <T> Page<T> applyReadOnlyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        return applyPagination(pageable, factory -> JPAQueryHints.readOnly(contentQuery.apply(factory)));
+    }
     protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
-        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+        return recordPagination("applyPagination", () -> {
+            if (countExecutor.isEnabled()) {
+                return countExecutor.getPage(pageable,
+                        () -> content(() -> getQuerydsl().applyPagination(pageable, contentQuery.apply(getQueryFactory())).fetch()),
+                        factory -> count(() -> contentQuery.apply(factory).fetchCount()));
+            }
+            JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+            List<T> content = content(() -> getQuerydsl().applyPagination(pageable,
+                    jpaQuery).fetch());
+            return PageableExecutionUtils.getPage(content, pageable,
+                    queryScheduler.count(jpaQuery::fetchCount));
+        });
     }
     protected <T> Page<T> applyPagination(Pageable pageable,Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
                     JPAQuery> countQuery) {
-        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+        return recordPagination("applyPaginationWithCountQuery", () -> {
+            if (countExecutor.isEnabled()) {
+                return countExecutor.getPage(pageable,
+                        () -> content(() -> getQuerydsl().applyPagination(pageable, contentQuery.apply(getQueryFactory())).fetch()),
+                        factory -> count(() -> countQuery.apply(factory).fetchCount()));
+            }
+            JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+            List<T> content = content(() -> getQuerydsl().applyPagination(pageable,jpaContentQuery).fetch());
+            JPAQuery countResult = countQuery.apply(getQueryFactory());
+            return PageableExecutionUtils.getPage(content, pageable,
+                    queryScheduler.count(countResult::fetchCount));
+        });
+    }
+    /**
+     * 지연 조인(late row lookup) 페이징.
+     * 조건과 정렬로 id 만 먼저 페이징한 뒤, 해당 id 들의 행을 한 번에 읽어 id 페이지 순서대로 돌려준다.
+     * offset 이 클 때 넓은 행을 버리며 읽는 양을 줄인다. count 는 idQuery 로 계산한다.
+     */
+    protected <T, ID> Page<T> applyDeferredJoinPagination(Pageable pageable,
+                                                          Function<JPAQueryFactory, JPAQuery<ID>> idQuery,
+                                                          Function<List<ID>, List<T>> rowQuery,
+                                                          Function<T, ID> idOf) {
+        return recordPagination("applyDeferredJoinPagination", () -> {
+            Supplier<List<T>> content = () -> content(() -> {
+                List<ID> ids = getQuerydsl().applyPagination(pageable, idQuery.apply(getQueryFactory())).fetch();
+                return ids.isEmpty() ? List.of() : inIdOrder(ids, rowQuery.apply(ids), idOf);
+            });
+            if (countExecutor.isEnabled()) {
+                return countExecutor.getPage(pageable, content, factory -> count(() -> idQuery.apply(factory).fetchCount()));
+            }
+            return PageableExecutionUtils.getPage(content.get(), pageable,
+                    queryScheduler.count(() -> idQuery.apply(getQueryFactory()).fetchCount()));
+        });
+    }
+    private static <T, ID> List<T> inIdOrder(List<ID> ids, List<T> rows, Function<T, ID> idOf) {
+        Map<ID, T> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+    private <T> List<T> content(Supplier<List<T>> query) {
+        return queryScheduler.run(QueryClass.CONTENT, query);
+    }
+    private Long count(Supplier<Long> query) {
+        return queryScheduler.run(QueryClass.COUNT, query);
+    }
+    private <T> Page<T> recordPagination(String method, Supplier<Page<T>> pagination) {
+        return repositoryMetrics.record(ClassUtils.getUserClass(this).getSimpleName() + "(support)", method,
+                RepositoryMetrics.NO_CONDITION, pagination);
     }
 }
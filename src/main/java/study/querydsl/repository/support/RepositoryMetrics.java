@@ -0,0 +1,82 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 리포지토리 메서드 한 번 호출의 지연시간, SQL 문장 수, 반환 행 수, 로딩된 엔티티 수를 기록한다.
+ * 태그: repository, method, shape(검색 조건 조합)
+ * 태그 조합마다 미터가 생기므로 히스토그램 버킷은 기본으로 내보내지 않는다.
+ * 필요하면 management.metrics.distribution.percentiles-histogram.repository.call=true 처럼 설정으로 켠다.
+ */
+@Component
+public class RepositoryMetrics {
+
+    public static final String NO_CONDITION = "n/a";
+
+    private final MeterRegistry registry;
+
+    public RepositoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T record(String repository, String method, String shape, Supplier<T> call) {
+        long statements = QueryStatistics.statements();
+        long entities = QueryStatistics.entitiesLoaded();
+        long start = System.nanoTime();
+        String outcome = "success";
+        T result = null;
+        try {
+            result = call.get();
+            return result;
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Tags tags = Tags.of("repository", repository, "method", method, "shape", shape);
+            Timer.builder("repository.call")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            summary("repository.call.sql.statements", tags).record(QueryStatistics.statements() - statements);
+            summary("repository.call.entities.loaded", tags).record(QueryStatistics.entitiesLoaded() - entities);
+            long rows = rows(result);
+            if (rows >= 0) {
+                summary("repository.call.rows", tags).record(rows);
+            }
+        }
+    }
+
+    private DistributionSummary summary(String name, Tags tags) {
+        return DistributionSummary.builder(name)
+                .tags(tags)
+                .register(registry);
+    }
+
+    // 행 수를 알 수 없는 결과(스트림, 카운트 등)는 -1
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof CursorSlice<?> slice) {
+            return slice.getContent().size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.repository.support;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberSearchKey;
+
+/**
+ * study.querydsl.repository 패키지의 *Repository* 클래스 public 메서드를 RepositoryMetrics 로 감싼다.
+ * Querydsl4RepositorySupport 의 protected 헬퍼는 프록시로 가로챌 수 없어 직접 기록한다.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final RepositoryMetrics metrics;
+
+    public RepositoryMetricsAspect(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Around("execution(public * study.querydsl.repository.*Repository*.*(..))"
+            + " && !target(org.springframework.data.repository.Repository)")
+    public Object record(ProceedingJoinPoint joinPoint) {
+        String repository = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        return metrics.record(repository, method, shape(joinPoint.getArgs()), () -> proceed(joinPoint));
+    }
+
+    private static String shape(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition condition) {
+                return MemberSearchKey.of(condition).shape();
+            }
+        }
+        return RepositoryMetrics.NO_CONDITION;
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 QueryStatistics 에 세고 SqlStatementListener 들에게 전달한다.
+ * 쓰기 문장이면 TableWriteListener 들에게도 알린다. SQL 은 변경하지 않는다.
+ */
+@Component
+public class SqlStatementInspector implements StatementInspector {
+
+    private static final Pattern WRITE = Pattern.compile(
+            "^(?:insert\\s+into|update|delete\\s+from|merge\\s+into)\\s+([\\w.]+)", Pattern.CASE_INSENSITIVE);
+
+    private final ObjectProvider<TableWriteListener> writeListenerProvider;
+    private final ObjectProvider<SqlStatementListener> statementListenerProvider;
+    private volatile List<TableWriteListener> writeListeners;
+    private volatile List<SqlStatementListener> statementListeners;
+
+    public SqlStatementInspector(ObjectProvider<TableWriteListener> writeListenerProvider,
+                                 ObjectProvider<SqlStatementListener> statementListenerProvider) {
+        this.writeListenerProvider = writeListenerProvider;
+        this.statementListenerProvider = statementListenerProvider;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryStatistics.statementPrepared();
+        for (SqlStatementListener listener : statementListeners()) {
+            listener.onStatement(sql);
+        }
+        String table = writtenTable(sql);
+        if (table != null) {
+            for (TableWriteListener listener : writeListeners()) {
+                listener.onTableWrite(table);
+            }
+        }
+        return sql;
+    }
+
+    static String writtenTable(String sql) {
+        Matcher matcher = WRITE.matcher(stripLeadingComments(sql));
+        return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+    }
+
+    // use_sql_comments 가 켜져 있으면 SQL 앞에 /* ... */ 가 붙는다
+    static String stripLeadingComments(String sql) {
+        String trimmed = sql.stripLeading();
+        while (trimmed.startsWith("/*")) {
+            int end = trimmed.indexOf("*/");
+            if (end < 0) {
+                return trimmed;
+            }
+            trimmed = trimmed.substring(end + 2).stripLeading();
+        }
+        return trimmed;
+    }
+
+    // 리스너 빈이 EntityManagerFactory 에 의존할 수 있으므로 처음 사용하는 시점에 조회한다
+    private List<TableWriteListener> writeListeners() {
+        List<TableWriteListener> current = writeListeners;
+        if (current == null) {
+            current = writeListenerProvider.orderedStream().toList();
+            writeListeners = current;
+        }
+        return current;
+    }
+
+    private List<SqlStatementListener> statementListeners() {
+        List<SqlStatementListener> current = statementListeners;
+        if (current == null) {
+            current = statementListenerProvider.orderedStream().toList();
+            statementListeners = current;
+        }
+        return current;
+    }
+}
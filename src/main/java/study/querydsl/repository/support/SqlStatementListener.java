@@ -0,0 +1,8 @@
+package study.querydsl.repository.support;
+
+/**
+ * Hibernate 가 준비하는 모든 SQL 문장마다 호출된다.
+ */
+public interface SqlStatementListener {
+    void onStatement(String sql);
+}
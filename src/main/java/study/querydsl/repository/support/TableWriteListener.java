@@ -0,0 +1,9 @@
+package study.querydsl.repository.support;
+
+/**
+ * Hibernate 가 INSERT / UPDATE / DELETE 를 실행하기 직전에 대상 테이블 이름(소문자)으로 호출된다.
+ * 엔티티 저장과 Querydsl 벌크 연산 모두 포함.
+ */
+public interface TableWriteListener {
+    void onTableWrite(String table);
+}
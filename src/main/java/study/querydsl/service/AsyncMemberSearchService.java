@@ -0,0 +1,119 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepositoryCustom 의 검색을 CompletableFuture 로 돌려준다.
+ * 작업마다 읽기 전용 트랜잭션을 새로 열어 실행하므로 EntityManager 는 작업마다 따로 쓴다.
+ * 동시에 DB 를 쓰는 작업은 max-concurrency(기본 Hikari maximum-pool-size) 개로 제한한다.
+ * spring.threads.virtual.enabled 이고 JDK 21 이상이면 작업마다 가상 스레드를 만들어 나머지는 그 스레드에서 기다리고,
+ * 아니면 max-concurrency 개의 플랫폼 스레드 풀에 queue-capacity 개까지 쌓은 뒤 RejectedExecutionException 을 던진다.
+ * parallel-count 를 켜면 searchPageComplex 의 count 는 별도 풀의 커넥션을 하나 더 쓴다.
+ */
+@Service
+public class AsyncMemberSearchService implements MeterBinder, DisposableBean {
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AsyncTaskExecutor executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public AsyncMemberSearchService(MemberRepository memberRepository, PlatformTransactionManager transactionManager,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                    @Value("${querydsl.async.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+                                    @Value("${querydsl.async.queue-capacity:1000}") int queueCapacity) {
+        this.memberRepository = memberRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = virtualThreads && Runtime.version().feature() >= 21
+                ? virtualThreadExecutor()
+                : platformThreadExecutor(maxConcurrency, queueCapacity);
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    private static AsyncTaskExecutor virtualThreadExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("member-async-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    // 플랫폼 스레드는 비싸므로 작업마다 만들지 않는다
+    private static AsyncTaskExecutor platformThreadExecutor(int maxConcurrency, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("member-async-");
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
+
+    public CompletableFuture<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        return submit(() -> memberRepository.search(condition));
+    }
+
+    public CompletableFuture<Page<MemberTeamDto>> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return submit(() -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    public CompletableFuture<Page<MemberTeamDto>> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return submit(() -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> search) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a database slot", e);
+            }
+            try {
+                return readOnlyTransaction.execute(status -> search.get());
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("member.async.active", permits, p -> maxConcurrency - p.availablePermits())
+                .description("Async member searches holding a database slot")
+                .register(registry);
+        Gauge.builder("member.async.waiting", permits, Semaphore::getQueueLength)
+                .description("Async member searches waiting for a database slot")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executor instanceof DisposableBean disposable) {
+            disposable.destroy();
+        } else if (executor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchKey;
+import study.querydsl.repository.MemberSortKey;
+import study.querydsl.repository.support.CursorSlice;
+import study.querydsl.repository.support.SingleFlight;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * MemberRepository 앞단에서 동시에 들어온 동일한 검색(정규화된 조건 + 페이지)을 한 번만 실행한다.
+ * 반환된 결과는 호출자끼리 공유되므로 읽기 전용으로 다뤄야 한다.
+ * 쓰기 트랜잭션 안에서의 호출은 자기 변경분을 봐야 하므로 합치지 않는다.
+ * MemberRepositoryCustom 을 구현하면 같은 타입의 빈이 둘이 되므로 메서드 시그니처만 맞춘다.
+ */
+@Service
+public class CoalescingMemberSearchService implements MeterBinder {
+
+    private final MemberRepository memberRepository;
+    private final SingleFlight<SearchKey, Object> singleFlight;
+
+    public CoalescingMemberSearchService(MemberRepository memberRepository,
+                                         @Value("${querydsl.coalescing.max-wait:5s}") Duration maxWait) {
+        this.memberRepository = memberRepository;
+        this.singleFlight = new SingleFlight<>(maxWait);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return coalesce(new SearchKey("search", MemberSearchKey.of(condition), null),
+                () -> Collections.unmodifiableList(memberRepository.search(condition)));
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(new SearchKey("searchPageSimple", MemberSearchKey.of(condition), pageable),
+                () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(new SearchKey("searchPageComplex", MemberSearchKey.of(condition), pageable),
+                () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        return searchSlice(condition, MemberSortKey.ID, cursor, size);
+    }
+
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberSortKey sortKey, String cursor, int size) {
+        return coalesce(new SearchKey("searchSlice:" + sortKey + ":" + cursor + ":" + size, MemberSearchKey.of(condition), null),
+                () -> memberRepository.searchSlice(condition, sortKey, cursor, size));
+    }
+
+    // 스트림은 한 소비자만 읽을 수 있으므로 공유하지 않는다
+    public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition) {
+        return memberRepository.searchStream(condition);
+    }
+
+    // 이미 여러 조건을 한 번에 조회하므로 합치지 않는다
+    public Map<MemberSearchCondition, List<MemberTeamDto>> searchAll(Collection<MemberSearchCondition> conditions) {
+        return memberRepository.searchAll(conditions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(SearchKey key, Supplier<T> search) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return search.get();
+        }
+        return (T) singleFlight.execute(key, search::get);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::executionCount)
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::sharedCount)
+                .tag("result", "shared")
+                .register(registry);
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::timedOutCount)
+                .tag("result", "timed_out")
+                .register(registry);
+    }
+
+    private record SearchKey(String method, MemberSearchKey condition, Pageable pageable) {
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.service;
+
+import java.time.Duration;
+
+public record IngestResult(long rows, Duration elapsed) {
+
+    public double rowsPerSecond() {
+        long nanos = Math.max(elapsed.toNanos(), 1L);
+        return rows * 1_000_000_000d / nanos;
+    }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 대량 회원 적재.
+ * chunk-size 건마다 flush(JDBC batch insert) 후 그 chunk 에서 저장한 회원만 분리(detach)하고 커밋한다.
+ * 호출 측에 트랜잭션이 있으면 거기에 참여하므로 커밋은 호출 측이 끝날 때 한 번만 일어나고,
+ * 호출 측이 이미 들고 있던 엔티티는 영속성 컨텍스트에 그대로 남는다.
+ * Member(username, age, team) 생성자는 team.members 에도 추가하므로 대량 적재에는 setTeam 을 쓰는 편이 메모리에 유리하다.
+ */
+@Slf4j
+@Service
+public class MemberBulkIngestService {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public MemberBulkIngestService(EntityManager em, PlatformTransactionManager transactionManager,
+                                   @Value("${querydsl.ingest.chunk-size:1000}") int chunkSize) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public IngestResult ingest(Stream<Member> members) {
+        try (members) {
+            return ingest(members.iterator());
+        }
+    }
+
+    public IngestResult ingest(Iterable<Member> members) {
+        return ingest(members.iterator());
+    }
+
+    private IngestResult ingest(Iterator<Member> members) {
+        long start = System.nanoTime();
+        long rows = 0;
+        while (members.hasNext()) {
+            Integer persisted = transactionTemplate.execute(status -> persistChunk(members));
+            rows += persisted;
+        }
+        IngestResult result = new IngestResult(rows, Duration.ofNanos(System.nanoTime() - start));
+        log.info("ingested {} members in {} ms ({} rows/sec)",
+                result.rows(), result.elapsed().toMillis(), Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    private int persistChunk(Iterator<Member> members) {
+        List<Member> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && members.hasNext()) {
+            Member member = members.next();
+            em.persist(member);
+            chunk.add(member);
+        }
+        em.flush();
+        // em.clear() 는 호출 측 트랜잭션의 엔티티까지 분리하므로 이번 chunk 만 분리한다
+        chunk.forEach(em::detach);
+        return chunk.size();
+    }
+}
@@ -0,0 +1,437 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.MemberRowWriteListener;
+import study.querydsl.repository.support.MemberRowWriteListener.Change;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 같은 회원에 대한 잦은 age / username 변경을 모아 두었다가 JDBC batch update 로 한 번에 반영한다.
+ * 같은 id 의 변경은 마지막 값으로 합쳐지고, batch-size 개가 쌓이거나 flush-interval 이 지나면 반영한다.
+ * 버퍼에는 max-pending 개의 id 까지만 담고, 가득 차면 offer-timeout 동안 기다린 뒤 RejectedExecutionException 을 던진다.
+ * 반영 전에는 조회에 보이지 않으며, 호출 측 트랜잭션과 무관하게 배치마다 별도 트랜잭션(REQUIRES_NEW)으로 커밋된다.
+ * 실패한 배치는 한 건씩 다시 반영해 문제 있는 회원만 버퍼로 되돌리고, max-attempts 번 실패한 변경은 로그를 남기고 버린다.
+ * 종료(shutdown) 후의 변경은 RejectedExecutionException 으로 거절한다.
+ * 반영할 때 바뀌기 전 나이 / 팀을 함께 읽어 MemberRowWriteListener 들에게 바뀐 회원만 알린다. (파생 데이터 전체를 다시 만들지 않는다)
+ * 비활성이면 호출 즉시 같은 경로로 반영한다.
+ */
+@Slf4j
+@Service
+public class MemberWriteBehindBuffer implements MeterBinder {
+
+    // 엔티티 쪽 낙관적 락이 이 변경을 감지하도록 version 도 올린다
+    private static final String UPDATE_SQL =
+            "update member set age = coalesce(?, age), username = coalesce(?, username), version = version + 1 where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory emf;
+    private final ObjectProvider<MemberRowWriteListener> listenerProvider;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration offerTimeout;
+
+    private final Stripe[] stripes;
+    private final Semaphore capacity;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean shutdown;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public MemberWriteBehindBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   EntityManagerFactory emf, ObjectProvider<MemberRowWriteListener> listenerProvider,
+                                   @Value("${querydsl.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${querydsl.write-behind.stripes:16}") int stripes,
+                                   @Value("${querydsl.write-behind.max-pending:10000}") int maxPending,
+                                   @Value("${querydsl.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${querydsl.write-behind.max-attempts:3}") int maxAttempts,
+                                   @Value("${querydsl.write-behind.flush-interval:200ms}") Duration flushInterval,
+                                   @Value("${querydsl.write-behind.offer-timeout:1s}") Duration offerTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // flush() 를 호출한 쪽의 트랜잭션에 참여하면 그 롤백이 이미 반영했다고 센 변경을 지운다
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.emf = emf;
+        this.listenerProvider = listenerProvider;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.offerTimeout = offerTimeout;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripes))];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.capacity = new Semaphore(maxPending);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("member-write-behind-"));
+        if (enabled) {
+            long interval = flushInterval.toMillis();
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void updateAge(Long memberId, int age) {
+        update(memberId, age, null);
+    }
+
+    public void updateUsername(Long memberId, String username) {
+        update(memberId, null, username);
+    }
+
+    /**
+     * null 인 값은 바꾸지 않는다.
+     */
+    public void update(Long memberId, Integer age, String username) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("memberId must not be null");
+        }
+        if (shutdown) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Member write-behind buffer is shut down");
+        }
+        if (!enabled) {
+            write(List.of(new PendingUpdate(memberId, age, username)));
+            return;
+        }
+        Stripe stripe = stripes[spread(memberId.hashCode()) & (stripes.length - 1)];
+        if (stripe.merge(memberId, age, username)) {
+            coalesced.incrementAndGet();
+            return;
+        }
+        // 새 id 는 자리를 먼저 확보한다. 스트라이프 락을 잡은 채로 기다리면 flush 가 자리를 돌려주지 못한다.
+        acquire();
+        long count = pending.incrementAndGet();
+        if (stripe.mergeOrInsert(memberId, age, username)) {
+            pending.decrementAndGet();
+            capacity.release();
+            coalesced.incrementAndGet();
+            return;
+        }
+        if (shutdown) {
+            // 종료 직전에 들어온 변경이 마지막 flush 를 놓쳤을 수 있으므로 직접 반영한다
+            flush();
+            return;
+        }
+        if (count >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!capacity.tryAcquire(offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Member write-behind buffer is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for write-behind buffer", e);
+        }
+    }
+
+    /**
+     * 쌓인 변경을 반영한다. 반영한 회원 수를 돌려준다.
+     * 커밋된 배치는 다시 반영하지 않고, 실패한 회원만 버퍼로 되돌린다.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<PendingUpdate> drained = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                stripe.drainTo(drained);
+            }
+            if (drained.isEmpty()) {
+                return 0;
+            }
+            int written = 0;
+            List<PendingUpdate> retry = new ArrayList<>();
+            for (int from = 0; from < drained.size(); from += batchSize) {
+                List<PendingUpdate> batch = drained.subList(from, Math.min(drained.size(), from + batchSize));
+                try {
+                    write(batch);
+                    written += batch.size();
+                } catch (RuntimeException e) {
+                    log.warn("member write-behind batch of {} failed, retrying row by row", batch.size(), e);
+                    written += writeEach(batch, retry);
+                }
+            }
+            int released = drained.size() - retry.size();
+            pending.addAndGet(-released);
+            capacity.release(released);
+            requeue(retry);
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 실패한 배치를 한 건씩 반영한다. 다시 실패한 변경은 max-attempts 전까지 retry 에 담고, 그 뒤에는 버린다.
+     */
+    private int writeEach(List<PendingUpdate> batch, List<PendingUpdate> retry) {
+        int written = 0;
+        for (PendingUpdate update : batch) {
+            try {
+                write(List.of(update));
+                written++;
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                if (++update.attempts < maxAttempts) {
+                    retry.add(update);
+                } else {
+                    dropped.incrementAndGet();
+                    log.error("dropping member write-behind update for member {} after {} attempts",
+                            update.memberId, update.attempts, e);
+                }
+            }
+        }
+        return written;
+    }
+
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("member write-behind flush failed, will retry", e);
+        }
+    }
+
+    private void write(List<PendingUpdate> updates) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Change> changes = lockCurrentRows(updates);
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(),
+                    (ps, update) -> {
+                        if (update.age == null) {
+                            ps.setNull(1, Types.INTEGER);
+                        } else {
+                            ps.setInt(1, update.age);
+                        }
+                        ps.setString(2, update.username);
+                        ps.setLong(3, update.memberId);
+                    });
+            // Hibernate 를 거치지 않은 쓰기이므로 파생 데이터에는 바뀐 회원만 직접 알린다
+            if (!changes.isEmpty()) {
+                listenerProvider.orderedStream().forEach(listener -> listener.onMembersUpdated(changes));
+            }
+        });
+        batches.incrementAndGet();
+        flushedRows.addAndGet(updates.size());
+        for (PendingUpdate update : updates) {
+            emf.getCache().evict(Member.class, update.memberId);
+        }
+    }
+
+    /**
+     * 바꾸기 전 나이 / 팀을 행 락을 잡고 읽는다. 그 사이 다른 트랜잭션이 나이를 바꾸면 델타가 어긋나기 때문이다.
+     * 이미 삭제된 회원은 빠진다.
+     */
+    private List<Change> lockCurrentRows(List<PendingUpdate> updates) {
+        Map<Long, PendingUpdate> byId = new HashMap<>(updates.size() * 2);
+        updates.forEach(update -> byId.put(update.memberId, update));
+        String sql = "select id, age, team_id from member where id in (" +
+                String.join(",", Collections.nCopies(updates.size(), "?")) + ") for update";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            long id = rs.getLong(1);
+            int oldAge = rs.getInt(2);
+            long teamId = rs.getLong(3);
+            Long team = rs.wasNull() ? null : teamId;
+            Integer newAge = byId.get(id).age;
+            return new Change(id, team, oldAge, newAge == null ? oldAge : newAge);
+        }, byId.keySet().toArray());
+    }
+
+    /**
+     * 실패한 변경을 되돌려 놓는다. 그 사이 같은 id 에 새 변경이 들어왔으면 새 값이 우선한다.
+     * 되돌린 변경은 아직 자리를 차지하고 있으므로 새 변경에 합쳐질 때만 자리를 돌려준다.
+     */
+    private void requeue(List<PendingUpdate> drained) {
+        for (PendingUpdate update : drained) {
+            Stripe stripe = stripes[spread(update.memberId.hashCode()) & (stripes.length - 1)];
+            if (stripe.restore(update)) {
+                pending.decrementAndGet();
+                capacity.release();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int rows = flush();
+        if (rows > 0) {
+            log.info("flushed {} pending member updates on shutdown", rows);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("member.write.behind.pending", pending, AtomicLong::get)
+                .description("Members with buffered updates")
+                .register(registry);
+        FunctionCounter.builder("member.write.behind.coalesced", coalesced, AtomicLong::get)
+                .description("Updates merged into an already buffered member")
+                .register(registry);
+        FunctionCounter.builder("member.write.behind.flushed", flushedRows, AtomicLong::get)
+                .description("Member rows written by write-behind batches")
+                .register(registry);
+        FunctionCounter.builder("member.write.behind.batches", batches, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("member.write.behind.rejected", rejected, AtomicLong::get)
+                .description("Updates rejected because the buffer stayed full")
+                .register(registry);
+        FunctionCounter.builder("member.write.behind.failures", failures, AtomicLong::get)
+                .description("Member rows that failed to write")
+                .register(registry);
+        FunctionCounter.builder("member.write.behind.dropped", dropped, AtomicLong::get)
+                .description("Member updates dropped after max-attempts failures")
+                .register(registry);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class PendingUpdate {
+        private final Long memberId;
+        private Integer age;
+        private String username;
+        private int attempts;
+
+        private PendingUpdate(Long memberId, Integer age, String username) {
+            this.memberId = memberId;
+            this.age = age;
+            this.username = username;
+        }
+
+        private void apply(Integer age, String username) {
+            if (age != null) {
+                this.age = age;
+            }
+            if (username != null) {
+                this.username = username;
+            }
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Long, PendingUpdate> updates = new HashMap<>();
+
+        boolean merge(Long memberId, Integer age, String username) {
+            lock.lock();
+            try {
+                PendingUpdate update = updates.get(memberId);
+                if (update == null) {
+                    return false;
+                }
+                update.apply(age, username);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 이미 있던 id 에 합쳤으면 true, 새로 넣었으면 false
+         */
+        boolean mergeOrInsert(Long memberId, Integer age, String username) {
+            lock.lock();
+            try {
+                PendingUpdate update = updates.get(memberId);
+                if (update != null) {
+                    update.apply(age, username);
+                    return true;
+                }
+                updates.put(memberId, new PendingUpdate(memberId, age, username));
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 새 변경에 합쳐져 자리가 남았으면 true
+         */
+        boolean restore(PendingUpdate failed) {
+            lock.lock();
+            try {
+                PendingUpdate newer = updates.get(failed.memberId);
+                if (newer == null) {
+                    updates.put(failed.memberId, failed);
+                    return false;
+                }
+                failed.apply(newer.age, newer.username);
+                updates.put(failed.memberId, failed);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void drainTo(List<PendingUpdate> target) {
+            lock.lock();
+            try {
+                if (updates.isEmpty()) {
+                    return;
+                }
+                target.addAll(updates.values());
+                updates = new HashMap<>();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
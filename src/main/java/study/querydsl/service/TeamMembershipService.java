@@ -0,0 +1,120 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원의 팀 이동. member.team_id 만 갱신하고 Team 과 Team.members 는 읽지 않는다.
+ * Member.changeTeam 과 달리 이미 로딩된 team.members 컬렉션에는 반영되지 않는다. (2차 캐시의 컬렉션은 auto_evict_collection_cache 로 비워진다)
+ * Member 의 @Version 으로 충돌을 감지하고, 호출 측 트랜잭션이 없으면 시도마다 새 트랜잭션으로 max-attempts 번까지 다시 시도한다.
+ * 호출 측 트랜잭션이 있으면 거기에 참여하여 한 번만 시도한다.
+ * team-stats 가 켜져 있으면 커밋 직전에 두 팀의 team_stats 행을 갱신하므로 같은 팀으로의 이동끼리는 그 행에서 직렬화된다.
+ */
+@Slf4j
+@Service
+public class TeamMembershipService implements MeterBinder {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public TeamMembershipService(EntityManager em, PlatformTransactionManager transactionManager,
+                                 @Value("${querydsl.team-membership.max-attempts:5}") int maxAttempts,
+                                 @Value("${querydsl.team-membership.backoff:5ms}") Duration backoff) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    /**
+     * @param teamId null 이면 팀에서 뺀다
+     * @return 성공할 때까지 시도한 횟수
+     */
+    public int moveTo(Long memberId, Long teamId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            move(memberId, teamId);
+            moves.incrementAndGet();
+            return 1;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> move(memberId, teamId));
+                moves.incrementAndGet();
+                return attempt;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    throw e;
+                }
+                log.debug("team move of member {} conflicted (attempt {}/{})", memberId, attempt, maxAttempts);
+                sleep(attempt);
+            }
+        }
+    }
+
+    private void move(Long memberId, Long teamId) {
+        Member member = em.find(Member.class, memberId);
+        if (member == null) {
+            throw new EntityNotFoundException("Member not found: " + memberId);
+        }
+        if (Objects.equals(teamId, teamId(member))) {
+            return;
+        }
+        // 연관관계 편의 메소드(changeTeam)는 team.members 를 초기화하므로 쓰지 않는다
+        member.setTeam(teamId == null ? null : em.getReference(Team.class, teamId));
+    }
+
+    private static Long teamId(Member member) {
+        return member.getTeam() == null ? null : member.getTeam().getId();
+    }
+
+    // 충돌한 스레드끼리 같은 순간에 다시 부딪히지 않도록 지터를 섞는다
+    private void sleep(int attempt) {
+        long max = backoff.toMillis() * attempt;
+        if (max <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(max + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying team move", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("team.membership.moves", moves, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("team.membership.conflicts", conflicts, AtomicLong::get)
+                .description("Optimistic lock failures while moving members")
+                .register(registry);
+        FunctionCounter.builder("team.membership.exhausted", exhausted, AtomicLong::get)
+                .description("Moves that failed after max-attempts")
+                .register(registry);
+    }
+}
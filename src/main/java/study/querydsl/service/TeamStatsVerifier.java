@@ -0,0 +1,95 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.dto.TeamAgeStatistics;
+import study.querydsl.repository.TeamStatsRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * team_stats 와 member 테이블의 실제 집계를 비교한다.
+ * 어긋난 팀이 있으면 로그를 남기고, repair 를 요청하면 team_stats 를 다시 만든다.
+ */
+@Slf4j
+@Service
+public class TeamStatsVerifier implements MeterBinder {
+
+    private final TeamStatsRepository teamStatsRepository;
+    private final AtomicLong mismatches = new AtomicLong();
+    private final AtomicLong repairs = new AtomicLong();
+
+    public TeamStatsVerifier(TeamStatsRepository teamStatsRepository) {
+        this.teamStatsRepository = teamStatsRepository;
+    }
+
+    public record Mismatch(Long teamId, AgeStatistics expected, AgeStatistics actual) {
+    }
+
+    /**
+     * 두 집계를 한 REPEATABLE_READ 트랜잭션 안에서 읽는다.
+     * 스냅샷 격리를 주는 DB(PostgreSQL, InnoDB 등)에서는 같은 시점을 비교하지만,
+     * 그렇지 않은 DB 에서는 두 읽기 사이의 커밋 때문에 일시적인 불일치가 보고될 수 있다.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<Mismatch> verify() {
+        Map<Long, AgeStatistics> expected = byTeamId(teamStatsRepository.findAllLive());
+        Map<Long, AgeStatistics> actual = byTeamId(teamStatsRepository.findAll());
+        TreeSet<Long> teamIds = new TreeSet<>(expected.keySet());
+        teamIds.addAll(actual.keySet());
+
+        List<Mismatch> result = new ArrayList<>();
+        for (Long teamId : teamIds) {
+            AgeStatistics live = expected.getOrDefault(teamId, AgeStatistics.EMPTY);
+            AgeStatistics stored = actual.getOrDefault(teamId, AgeStatistics.EMPTY);
+            if (!Objects.equals(live, stored)) {
+                result.add(new Mismatch(teamId, live, stored));
+            }
+        }
+        return result;
+    }
+
+    // verify 는 같은 빈 안에서 호출되므로 이 트랜잭션의 격리 수준으로 읽는다
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public List<Mismatch> verifyAndRepair(boolean repair) {
+        List<Mismatch> result = verify();
+        if (result.isEmpty()) {
+            return result;
+        }
+        mismatches.addAndGet(result.size());
+        log.warn("team_stats mismatch for {} teams: {}", result.size(), result);
+        if (repair) {
+            teamStatsRepository.rebuild();
+            repairs.incrementAndGet();
+        }
+        return result;
+    }
+
+    private static Map<Long, AgeStatistics> byTeamId(List<TeamAgeStatistics> statistics) {
+        Map<Long, AgeStatistics> result = new LinkedHashMap<>();
+        for (TeamAgeStatistics teamStatistics : statistics) {
+            result.put(teamStatistics.teamId(), teamStatistics.statistics());
+        }
+        return result;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("team.stats.verification.mismatches", mismatches, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("team.stats.verification.repairs", repairs, AtomicLong::get)
+                .register(registry);
+    }
+}
@@ -0,0 +1,103 @@
+package study.querydsl.config;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.JPAQueryHints.cacheable;
+
+/**
+ * 2차 캐시는 커밋된 데이터만 담으므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+class HibernateCacheMetricsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        tx.executeWithoutResult(status ->
+                queryFactory.delete(team).where(team.name.eq("cachedTeam")).execute());
+    }
+
+    @Test
+    public void secondFindIsServedFromSecondLevelCache(){
+        Long teamId = tx.execute(status -> {
+            Team cachedTeam = new Team("cachedTeam");
+            em.persist(cachedTeam);
+            return cachedTeam.getId();
+        });
+        double hitsBefore = hits("team");
+
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId));
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId));
+
+        assertThat(statistics.getCacheRegionStatistics("team").getHitCount()).isPositive();
+        assertThat(hits("team")).isGreaterThan(hitsBefore);
+    }
+
+    @Test
+    public void cacheableQueryHitsQueryCache(){
+        tx.executeWithoutResult(status -> em.persist(new Team("cachedTeam")));
+        long hitsBefore = statistics.getQueryCacheHitCount();
+
+        for (int i = 0; i < 2; i++) {
+            Team found = tx.execute(status ->
+                    cacheable(queryFactory.selectFrom(team).where(team.name.eq("cachedTeam"))).fetchOne());
+            assertThat(found.getName()).isEqualTo("cachedTeam");
+        }
+
+        assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(hitsBefore);
+    }
+
+    @Test
+    public void regionCountersAreBound(){
+        assertThat(statistics.isStatisticsEnabled()).isTrue();
+        for (String result : new String[]{"hit", "miss", "put"}) {
+            assertThat(meterRegistry.find("hibernate.second.level.cache.requests")
+                    .tags("region", "member", "result", result)
+                    .functionCounter()).isNotNull();
+        }
+    }
+
+    private double hits(String region) {
+        return meterRegistry.get("hibernate.second.level.cache.requests")
+                .tags("region", region, "result", "hit")
+                .functionCounter().count();
+    }
+}
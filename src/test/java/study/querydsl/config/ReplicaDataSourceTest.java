@@ -0,0 +1,94 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaDataSourceTest {
+
+    @Test
+    public void readOnlyTransactionsGoToReplicas() {
+        Routing routing = routing(ReplicaDataSource.Strategy.ROUND_ROBIN, Duration.ZERO, "replica1", "replica2");
+
+        assertThat(routing.read(false)).isEqualTo("primary");
+        assertThat(List.of(routing.read(true), routing.read(true), routing.read(true), routing.read(true)))
+                .containsExactly("replica1", "replica2", "replica1", "replica2");
+    }
+
+    @Test
+    public void leastBusyAvoidsReplicaWithOpenConnections() throws Exception {
+        Routing routing = routing(ReplicaDataSource.Strategy.LEAST_BUSY, Duration.ZERO, "replica1", "replica2");
+
+        try (Connection held = routing.replicas.getConnection()) {
+            assertThat(routing.replicas.inFlight(0) + routing.replicas.inFlight(1)).isEqualTo(1);
+            String busy = routing.replicas.inFlight(0) == 1 ? "replica1" : "replica2";
+            for (int i = 0; i < 4; i++) {
+                assertThat(routing.read(true)).isNotEqualTo(busy);
+            }
+        }
+        assertThat(routing.replicas.inFlight(0) + routing.replicas.inFlight(1)).isZero();
+    }
+
+    @Test
+    public void explicitCredentialsAreDelegatedToTheSelectedPool() throws Exception {
+        Routing routing = routing(ReplicaDataSource.Strategy.ROUND_ROBIN, Duration.ZERO, "replica1");
+
+        try (Connection connection = routing.replicas.getConnection("sa", "")) {
+            assertThat(routing.replicas.inFlight(0)).isEqualTo(1);
+            assertThat(new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                    .queryForObject("select name from node", String.class)).isEqualTo("replica1");
+        }
+        assertThat(routing.replicas.inFlight(0)).isZero();
+    }
+
+    @Test
+    public void readYourWritesStaysOnPrimary() {
+        Routing routing = routing(ReplicaDataSource.Strategy.ROUND_ROBIN, Duration.ofMinutes(1), "replica1");
+
+        assertThat(ReplicaDataSource.usePrimary(() -> routing.read(true))).isEqualTo("primary");
+        assertThat(routing.read(true)).isEqualTo("replica1");
+
+        ReplicaDataSource.markWrite();
+        assertThat(routing.read(true)).isEqualTo("primary");
+    }
+
+    private Routing routing(ReplicaDataSource.Strategy strategy, Duration sticky, String... replicaNames) {
+        DataSource primary = database("primary");
+        List<DataSource> replicas = Arrays.stream(replicaNames).map(this::database).toList();
+        ReplicaDataSource replicaDataSource = new ReplicaDataSource(primary, replicas, strategy, sticky);
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(replicaDataSource);
+        return new Routing(routing, replicaDataSource);
+    }
+
+    private DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table node (name varchar(20))");
+        jdbc.update("insert into node values (?)", name);
+        return dataSource;
+    }
+
+    private record Routing(DataSource dataSource, ReplicaDataSource replicas) {
+
+        String read(boolean readOnly) {
+            TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            tx.setReadOnly(readOnly);
+            return tx.execute(status -> new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkMutationResult;
+import study.querydsl.repository.support.BulkOptions;
+import study.querydsl.repository.support.BulkOptions.ChunkResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class MemberBulkRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // 트랜잭션 밖 병렬 실행은 청크마다 커밋하므로 롤백 대신 직접 정리한다
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                queryFactory.delete(member).where(member.username.startsWith("bulkParallel")).execute());
+    }
+
+    @Test
+    public void chunkedUpdate(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member member1 = new Member("bulkMember1", 10, teamA);
+        Member member2 = new Member("bulkMember2", 20, teamA);
+        Member member3 = new Member("bulkMember3", 30, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.flush();
+
+        List<ChunkResult> progress = new ArrayList<>();
+        BulkMutationResult result = memberBulkRepository.update(member.username.startsWith("bulkMember").and(member.age.lt(28)),
+                clause -> clause.set(member.username, "비회원"),
+                BulkOptions.chunkSize(1).progress(progress::add));
+
+        assertThat(result.affectedRows()).isEqualTo(2);
+        assertThat(result.chunks()).isEqualTo(2);
+        assertThat(progress).extracting(ChunkResult::affectedRows).containsExactly(1L, 1L);
+
+        //영속성 컨텍스트의 오래된 엔티티는 분리되어 다시 조회된다
+        assertThat(em.contains(member1)).isFalse();
+        Member updated = em.find(Member.class, member1.getId());
+        assertThat(updated.getUsername()).isEqualTo("비회원");
+        //엔티티 쪽 낙관적 락이 벌크 변경을 감지하도록 version 이 오른다
+        assertThat(updated.getVersion()).isEqualTo(member1.getVersion() + 1);
+        assertThat(em.find(Member.class, member3.getId()).getUsername()).isEqualTo("bulkMember3");
+    }
+
+    @Test
+    public void chunkedDelete(){
+        em.persist(new Member("bulkDelete1", 10));
+        em.persist(new Member("bulkDelete2", 20));
+        em.persist(new Member("bulkDelete3", 30));
+        em.flush();
+
+        BulkMutationResult result = memberBulkRepository.delete(
+                member.username.startsWith("bulkDelete").and(member.age.gt(18)), BulkOptions.chunkSize(2));
+
+        assertThat(result.affectedRows()).isEqualTo(2);
+        assertThat(em.createQuery("select count(m) from Member m where m.username like 'bulkDelete%'", Long.class)
+                .getSingleResult()).isEqualTo(1L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void parallelChunksOutsideTransaction(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 12; i++) {
+                em.persist(new Member("bulkParallel" + i, i));
+            }
+        });
+        //id 가 듬성듬성해도 키셋 청크는 조건에 맞는 행 수로만 나뉜다
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                queryFactory.delete(member).where(member.username.in("bulkParallel3", "bulkParallel4", "bulkParallel9")).execute());
+
+        List<ChunkResult> progress = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        BulkMutationResult result = memberBulkRepository.update(member.username.startsWith("bulkParallel"),
+                clause -> clause.set(member.age, 50),
+                BulkOptions.chunkSize(3).parallelism(3).progress(chunk -> {
+                    progress.add(chunk);
+                    threads.add(Thread.currentThread().getName());
+                }));
+
+        assertThat(result.affectedRows()).isEqualTo(9);
+        assertThat(result.chunks()).isEqualTo(3);
+        assertThat(progress).extracting(ChunkResult::affectedRows).containsOnly(3L);
+        assertThat(threads).allMatch(name -> name.startsWith("member-bulk-"));
+        assertThat(queryFactory.selectFrom(member)
+                .where(member.username.startsWith("bulkParallel"), member.age.eq(50))
+                .fetch()).hasSize(9);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void secondLevelCacheIsEvictedAfterCallerCommit(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> {
+            Member cached = new Member("bulkParallelCached", 10);
+            em.persist(cached);
+            return cached.getId();
+        });
+        tx.executeWithoutResult(status -> em.find(Member.class, id));
+        assertThat(em.getEntityManagerFactory().getCache().contains(Member.class, id)).isTrue();
+
+        tx.executeWithoutResult(status -> memberBulkRepository.update(member.id.eq(id),
+                clause -> clause.set(member.age, 11)));
+
+        assertThat(em.getEntityManagerFactory().getCache().contains(Member.class, id)).isFalse();
+        assertThat(tx.execute(status -> em.find(Member.class, id)).getAge()).isEqualTo(11);
+    }
+}
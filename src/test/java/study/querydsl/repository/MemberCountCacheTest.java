@@ -0,0 +1,53 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberCountCacheTest {
+
+    @Test
+    public void cacheHitAndInvalidation(){
+        MemberCountCache cache = new MemberCountCache(true, 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        MemberSearchCondition sameCondition = new MemberSearchCondition();
+        sameCondition.setTeamName("teamA");
+        sameCondition.setUsername("");
+
+        assertThat(cache.get(MemberSearchKey.of(condition), () -> { loads.incrementAndGet(); return 2L; })).isEqualTo(2L);
+        assertThat(cache.get(MemberSearchKey.of(sameCondition), () -> { loads.incrementAndGet(); return 99L; })).isEqualTo(2L);
+        assertThat(loads.get()).isEqualTo(1);
+
+        cache.onTableWrite("hello");
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.onTableWrite("member");
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get(MemberSearchKey.of(condition), () -> { loads.incrementAndGet(); return 3L; })).isEqualTo(3L);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedEviction(){
+        MemberCountCache cache = new MemberCountCache(true, 2, Duration.ofMinutes(1));
+        MemberSearchKey key1 = new MemberSearchKey("member1", null, null, null);
+        MemberSearchKey key2 = new MemberSearchKey("member2", null, null, null);
+        MemberSearchKey key3 = new MemberSearchKey("member3", null, null, null);
+
+        cache.get(key1, () -> 1L);
+        cache.get(key2, () -> 1L);
+        cache.get(key1, () -> 1L);
+        cache.get(key3, () -> 1L);
+
+        assertThat(cache.contains(key1)).isTrue();
+        assertThat(cache.contains(key2)).isFalse();
+        assertThat(cache.contains(key3)).isTrue();
+    }
+}
@@ -0,0 +1,131 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.IdBatchLoader;
+import study.querydsl.repository.support.QueryScheduler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberJpaRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberSearchQueryCache queryCache;
+
+    @Autowired
+    IdBatchLoader idBatchLoader;
+
+    @Autowired
+    QueryScheduler queryScheduler;
+
+    @Test
+    public void readOnlyQueryIsNotDirtyChecked(){
+        memberJpaRepository.save(new Member("readOnlyMember", 10));
+        em.flush();
+        em.clear();
+
+        List<Member> members = memberJpaRepository.findAll_QueryDslReadOnly();
+        Member member = members.stream()
+                .filter(m -> m.getUsername().equals("readOnlyMember"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(em.unwrap(Session.class).isReadOnly(member)).isTrue();
+
+        member.setUsername("changed");
+        em.flush();
+        em.clear();
+
+        assertThat(memberJpaRepository.findByUsername_QueryDsl("readOnlyMember")).hasSize(1);
+        assertThat(memberJpaRepository.findByUsername_QueryDsl("changed")).isEmpty();
+    }
+
+    @Test
+    public void findAllByIdsKeepsCallerOrder(){
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member("idBatch" + i, i);
+            memberJpaRepository.save(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        List<Long> requested = List.of(ids.get(3), ids.get(0), -1L, ids.get(4), ids.get(0), ids.get(1));
+        List<Member> members = memberJpaRepository.findAllByIds(requested);
+
+        assertThat(members).extracting("username")
+                .containsExactly("idBatch3", "idBatch0", "idBatch4", "idBatch1");
+        assertThat(memberJpaRepository.findAllByIds(List.of())).isEmpty();
+    }
+
+    @Test
+    public void streamAllDetachesEveryClearInterval(){
+        for (int i = 0; i < 5; i++) {
+            memberJpaRepository.save(new Member("streamAll" + i, i));
+        }
+        em.flush();
+        em.clear();
+        MemberJpaRepository repository = new MemberJpaRepository(em, queryFactory, queryCache, idBatchLoader,
+                queryScheduler, 500, 2);
+
+        List<Member> seen = new ArrayList<>();
+        try (Stream<Member> stream = repository.streamAll()) {
+            Iterator<Member> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Member current = iterator.next();
+                seen.add(current);
+                //소비 중인 청크는 영속 상태, 그 이전 청크는 분리되어 있다
+                int chunkStart = (seen.size() - 1) / 2 * 2;
+                for (int i = 0; i < seen.size(); i++) {
+                    assertThat(em.contains(seen.get(i))).isEqualTo(i >= chunkStart);
+                }
+            }
+        }
+        assertThat(seen).extracting("username").contains("streamAll0", "streamAll4");
+    }
+
+    @Test
+    public void changesMadeWhileStreamingAllAreFlushedBeforeDetach(){
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member("streamAllChange" + i, i);
+            memberJpaRepository.save(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+        MemberJpaRepository repository = new MemberJpaRepository(em, queryFactory, queryCache, idBatchLoader,
+                queryScheduler, 500, 2);
+
+        try (Stream<Member> stream = repository.streamAll()) {
+            stream.filter(member -> ids.contains(member.getId()))
+                    .forEach(member -> member.setAge(77));
+        }
+        em.flush();
+        em.clear();
+
+        assertThat(memberJpaRepository.findAllByIds(ids)).extracting("age").containsOnly(77);
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * near-cache 는 커밋된 데이터만 보므로 트랜잭션 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "querydsl.near-cache.enabled=true")
+class MemberNearCacheTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberNearCache nearCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                memberRepository.deleteAll(memberRepository.findAll(member.username.startsWith("nearCache"))));
+    }
+
+    @Test
+    public void predicateIsEvaluatedAgainstSnapshotAndRefreshedOnWrite(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("nearCache1", 10));
+            memberRepository.save(new Member("nearCache2", 20));
+        });
+
+        assertThat(memberRepository.findAll(member.username.startsWith("nearCache").and(member.age.goe(15))))
+                .extracting(Member::getUsername).containsExactly("nearCache2");
+        //스냅샷 객체 대신 호출마다 새 복사본을 돌려준다
+        Member first = memberRepository.findAll(member.username.eq("nearCache2")).iterator().next();
+        Member second = memberRepository.findAll(member.username.eq("nearCache2")).iterator().next();
+        assertThat(first).isNotSameAs(second);
+        first.setAge(99);
+        assertThat(second.getAge()).isEqualTo(20);
+        long version = nearCache.version();
+        assertThat(nearCache.size()).isGreaterThanOrEqualTo(2);
+        assertThat(nearCache.estimatedBytes()).isPositive();
+
+        tx.executeWithoutResult(status -> {
+            Member member1 = memberRepository.findByUsername("nearCache1").get(0);
+            member1.setAge(30);
+            //읽기-쓰기 트랜잭션 안에서는 스냅샷 대신 DB 를 본다 (flush 전 변경 포함)
+            assertThat(memberRepository.count(member.username.startsWith("nearCache").and(member.age.goe(15))))
+                    .isEqualTo(2);
+        });
+
+        assertThat(nearCache.version()).isGreaterThan(version);
+        assertThat(memberRepository.findAll(member.username.startsWith("nearCache").and(member.age.goe(15))))
+                .extracting(Member::getUsername).containsExactlyInAnyOrder("nearCache1", "nearCache2");
+    }
+}
@@ -3,6 +3,7 @@ package study.querydsl.repository;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -12,8 +13,12 @@ import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CursorSlice;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -69,6 +74,47 @@ class MemberRepositoryTest {
         assertThat(memberTeamDtos).extracting("username").containsExactly( "member4");
     }
 
+    @Test
+    public void searchAllTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (String username : List.of("member1", "member3", "none")) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(username);
+            conditions.add(condition);
+        }
+        for (String teamName : List.of("teamA", "teamB")) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName(teamName);
+            condition.setAgeGoe(20);
+            conditions.add(condition);
+        }
+        MemberSearchCondition range = new MemberSearchCondition();
+        range.setAgeGoe(15);
+        range.setAgeLoe(35);
+        conditions.add(range);
+        conditions.add(new MemberSearchCondition());
+
+        Map<MemberSearchCondition, List<MemberTeamDto>> result = memberRepository.searchAll(conditions);
+
+        assertThat(result).hasSize(conditions.size());
+        for (MemberSearchCondition condition : conditions) {
+            assertThat(result.get(condition)).extracting("memberId")
+                    .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition).stream().map(MemberTeamDto::getMemberId).toList());
+        }
+        assertThat(result.get(conditions.get(3))).extracting("username").containsExactly("member2");
+        assertThat(result.get(range)).extracting("username").containsExactlyInAnyOrder("member2", "member3");
+    }
+
     @Test
     public void searchSimpleTest(){
         Team teamA = new Team("teamA");
@@ -95,6 +141,64 @@ class MemberRepositoryTest {
 
     }
 
+    @Test
+    public void searchSliceTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 40, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 20,teamB);
+        Member member4 = new Member("member4", 10,teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(15);
+
+        CursorSlice<MemberTeamDto> first = memberRepository.searchSlice(condition, MemberSortKey.AGE, null, 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member3");
+        assertThat(first.hasNext()).isTrue();
+
+        CursorSlice<MemberTeamDto> second = memberRepository.searchSlice(condition, MemberSortKey.AGE, first.getNextCursor(), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member1");
+        assertThat(second.hasNext()).isFalse();
+
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> memberRepository.searchSlice(condition, first.getNextCursor(), 2));
+        //IllegalArgumentException 이 리포지토리 프록시에서 변환된다
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> memberRepository.searchSlice(condition, null, 0));
+    }
+
+    @Test
+    public void searchStreamTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30,teamB);
+        Member member4 = new Member("member4", 40,teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        try (Stream<MemberTeamDto> stream = memberRepository.searchStream(condition)) {
+            assertThat(stream.map(MemberTeamDto::getUsername).toList()).containsExactlyInAnyOrder("member3", "member4");
+        }
+    }
+
     @Test
     public void queryDslPredicateExecutorTest(){
         Team teamA = new Team("teamA");
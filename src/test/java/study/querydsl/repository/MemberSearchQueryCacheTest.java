@@ -0,0 +1,113 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.IdBatchLoader;
+import study.querydsl.repository.support.QueryScheduler;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueryCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueryCache queryCache;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    IdBatchLoader idBatchLoader;
+
+    @Autowired
+    QueryScheduler queryScheduler;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void everyShapeBindsItsOwnParameters(){
+        persistMembers();
+
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchKey key = key(shape);
+            List<MemberTeamDto> result = queryCache.search(em, key);
+            assertThat(queryCache.count(em, key)).isEqualTo(result.size());
+            if (shape != 0) {
+                assertThat(result).extracting("username").contains("shapeMember3");
+            }
+        }
+
+        MemberSearchKey teamB40 = new MemberSearchKey(null, "shapeTeamB", 35, null);
+        assertThat(queryCache.search(em, teamB40)).extracting("username").containsExactly("shapeMember4");
+        assertThat(queryCache.search(em, new MemberSearchKey(null, "shapeTeamA", null, null), 1, 1))
+                .hasSize(1);
+    }
+
+    @Test
+    public void searchGoesThroughShapeCache(){
+        persistMembers();
+        MemberJpaRepository uncached = new MemberJpaRepository(em, queryFactory, new MemberSearchQueryCache(false),
+                idBatchLoader, queryScheduler, 500, 1000);
+        double lookups = lookups();
+
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchKey key = key(shape);
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(key.username());
+            condition.setTeamName(key.teamName());
+            condition.setAgeGoe(key.ageGoe());
+            condition.setAgeLoe(key.ageLoe());
+            assertThat(memberJpaRepository.search(condition)).extracting("memberId")
+                    .containsExactlyInAnyOrderElementsOf(uncached.search(condition).stream().map(MemberTeamDto::getMemberId).toList());
+        }
+
+        //search 도 shape 마다 직렬화해 둔 JPQL 을 쓴다
+        assertThat(lookups()).isEqualTo(lookups + 16);
+    }
+
+    private double lookups() {
+        return meterRegistry.get("member.search.query.cache").functionCounters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private static MemberSearchKey key(int shape) {
+        return new MemberSearchKey(
+                (shape & 1) == 0 ? null : "shapeMember3",
+                (shape & 2) == 0 ? null : "shapeTeamB",
+                (shape & 4) == 0 ? null : 25,
+                (shape & 8) == 0 ? null : 35);
+    }
+
+    private void persistMembers() {
+        Team teamA = new Team("shapeTeamA");
+        Team teamB = new Team("shapeTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("shapeMember1", 10, teamA));
+        em.persist(new Member("shapeMember2", 20, teamA));
+        em.persist(new Member("shapeMember3", 30, teamB));
+        em.persist(new Member("shapeMember4", 40, teamB));
+        em.flush();
+        em.clear();
+    }
+}
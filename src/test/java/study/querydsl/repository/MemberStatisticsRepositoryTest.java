@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 인덱스(트랜잭션 밖)와 SQL 집계(읽기-쓰기 트랜잭션 안)의 결과가 같은지 비교한다.
+ * 인덱스는 커밋된 데이터만 보므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "querydsl.age-index.enabled=true")
+class MemberStatisticsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberStatisticsRepository statisticsRepository;
+
+    @Autowired
+    MemberAgeIndex ageIndex;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("ageIndex")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("ageIndex")).execute();
+        });
+    }
+
+    @Test
+    public void indexMatchesSqlAndFollowsWrites(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("ageIndexTeamA");
+            Team teamB = new Team("ageIndexTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("ageIndex1", 10, teamA));
+            em.persist(new Member("ageIndex2", 20, teamA));
+            em.persist(new Member("ageIndex3", 30, teamB));
+            em.persist(new Member("ageIndex4", 40, teamB));
+            em.persist(new Member("ageIndex5", 50));
+        });
+        assertSameAsSql();
+        int size = ageIndex.size();
+
+        //엔티티 변경은 커밋 후 이벤트로 반영
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("ageIndex6", 35));
+            Member member2 = em.createQuery("select m from Member m where m.username = 'ageIndex2'", Member.class)
+                    .getSingleResult();
+            member2.setAge(45);
+        });
+        assertThat(ageIndex.size()).isEqualTo(size + 1);
+        assertSameAsSql();
+
+        //벌크 쓰기는 인덱스를 다시 만든다
+        tx.executeWithoutResult(status ->
+                queryFactory.update(member).set(member.age, member.age.add(1)).where(member.username.startsWith("ageIndex")).execute());
+        assertSameAsSql();
+    }
+
+    private void assertSameAsSql(){
+        assertSame(() -> statisticsRepository.countByAge(25, 45));
+        assertSame(() -> statisticsRepository.countByAge(null, 30));
+        assertSame(() -> statisticsRepository.ageStatistics());
+        assertSame(() -> statisticsRepository.ageStatisticsByTeam());
+    }
+
+    private <T> void assertSame(Supplier<T> query){
+        T fromIndex = query.get();
+        T fromSql = new TransactionTemplate(transactionManager).execute(status -> query.get());
+        assertThat(fromIndex).isEqualTo(fromSql);
+    }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    @BeforeEach
+    public void before(){
+        Team pagingTeam = new Team("pagingTeam");
+        Team otherTeam = new Team("pagingOther");
+        em.persist(pagingTeam);
+        em.persist(otherTeam);
+        em.persist(new Member("paging1", 10, pagingTeam));
+        em.persist(new Member("paging2", 20, pagingTeam));
+        em.persist(new Member("paging3", 20, pagingTeam));
+        em.persist(new Member("paging4", 30, pagingTeam));
+        em.persist(new Member("paging5", 40, pagingTeam));
+        em.persist(new Member("paging6", 50, otherTeam));
+        em.flush();
+        em.clear();
+
+        condition.setTeamName("pagingTeam");
+    }
+
+    @Test
+    public void deferredJoinMatchesOffsetOnSortedPage(){
+        Pageable pageable = PageRequest.of(1, 2, Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username")));
+
+        Page<MemberTeamDto> offset = memberTestRepository.searchPage(condition, pageable, PagingStrategy.OFFSET);
+        Page<MemberTeamDto> deferred = memberTestRepository.searchPage(condition, pageable, PagingStrategy.DEFERRED_JOIN);
+
+        assertThat(offset.getContent()).extracting("username").containsExactly("paging2", "paging3");
+        assertSamePage(deferred, offset);
+    }
+
+    @Test
+    public void deferredJoinMatchesOffsetOnEmptyPage(){
+        Pageable pageable = PageRequest.of(5, 2, Sort.by(Sort.Order.asc("username")));
+
+        Page<MemberTeamDto> offset = memberTestRepository.searchPage(condition, pageable, PagingStrategy.OFFSET);
+        Page<MemberTeamDto> deferred = memberTestRepository.searchPage(condition, pageable, PagingStrategy.DEFERRED_JOIN);
+
+        assertThat(offset.getContent()).isEmpty();
+        assertSamePage(deferred, offset);
+    }
+
+    private static void assertSamePage(Page<MemberTeamDto> actual, Page<MemberTeamDto> expected){
+        assertThat(actual.getContent())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(expected.getContent());
+        assertThat(actual.getTotalElements()).isEqualTo(expected.getTotalElements()).isEqualTo(5);
+        assertThat(actual.getNumber()).isEqualTo(expected.getNumber());
+    }
+}
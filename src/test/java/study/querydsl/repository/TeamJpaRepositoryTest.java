@@ -0,0 +1,96 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CursorSlice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class TeamJpaRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamJpaRepository teamJpaRepository;
+
+    @Test
+    public void teamMembersWithoutInitializingCollection(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        teamJpaRepository.save(teamA);
+        teamJpaRepository.save(teamB);
+        List<Long> memberIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member("member" + i, i, teamA);
+            em.persist(member);
+            memberIds.add(member.getId());
+        }
+        Member other = new Member("other", 10, teamB);
+        em.persist(other);
+        em.flush();
+        em.clear();
+
+        assertThat(teamJpaRepository.countMembers(teamA.getId())).isEqualTo(5);
+        assertThat(teamJpaRepository.containsMember(teamA.getId(), memberIds.get(0))).isTrue();
+        assertThat(teamJpaRepository.containsMember(teamA.getId(), other.getId())).isFalse();
+
+        CursorSlice<Member> first = teamJpaRepository.findMembers(teamA.getId(), null, 3);
+        assertThat(first.getContent()).extracting("id").containsExactlyElementsOf(memberIds.subList(0, 3));
+        CursorSlice<Member> second = teamJpaRepository.findMembers(teamA.getId(), first.getNextCursor(), 3);
+        assertThat(second.getContent()).extracting("id").containsExactlyElementsOf(memberIds.subList(3, 5));
+        assertThat(second.hasNext()).isFalse();
+
+        // 테스트 설정의 chunk-size 는 2 이므로 세 번에 나눠 읽는다
+        try (Stream<Member> stream = teamJpaRepository.streamMembers(teamA.getId())) {
+            assertThat(stream.map(Member::getId).toList()).containsExactlyElementsOf(memberIds);
+        }
+
+        Team found = em.find(Team.class, teamA.getId());
+        assertThat(found.memberCount()).isEqualTo(5);
+        assertThat(found.hasMember(em.getReference(Member.class, memberIds.get(1)))).isTrue();
+        assertThat(found.hasMember(em.find(Member.class, other.getId()))).isFalse();
+        assertThat(Hibernate.isInitialized(found.getMembers())).isFalse();
+    }
+
+    @Test
+    public void findMembersRejectsNonPositiveSize(){
+        assertThatThrownBy(() -> teamJpaRepository.findMembers(1L, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void changesMadeWhileStreamingAreFlushedBeforeDetach(){
+        Team team = new Team("streamTeam");
+        teamJpaRepository.save(team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("streamMember" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        // chunk-size 2 이므로 앞 두 청크는 스트림 도중 분리된다
+        try (Stream<Member> stream = teamJpaRepository.streamMembers(team.getId())) {
+            stream.forEach(member -> member.setAge(50));
+        }
+        em.flush();
+        em.clear();
+
+        assertThat(em.createQuery("select count(m) from Member m where m.team.id = :teamId and m.age = 50", Long.class)
+                .setParameter("teamId", team.getId())
+                .getSingleResult()).isEqualTo(5L);
+    }
+}
@@ -0,0 +1,207 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkOptions;
+import study.querydsl.service.TeamStatsVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * team_stats 는 커밋 직전에 갱신되므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    TeamStatsVerifier teamStatsVerifier;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("teamStats")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("teamStats")).execute();
+        });
+    }
+
+    @Test
+    public void statsFollowMemberChanges(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamStatsA");
+            Team teamB = new Team("teamStatsB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("teamStats1", 10, teamA));
+            em.persist(new Member("teamStats2", 20, teamA));
+            em.persist(new Member("teamStats3", 30, teamB));
+            em.persist(new Member("teamStats4", 40, teamB));
+        });
+        assertStats("teamStatsA", 2, 30, 10, 20);
+        assertStats("teamStatsB", 2, 70, 30, 40);
+
+        //나이 변경, 팀 이동(changeTeam), 삭제
+        tx.executeWithoutResult(status -> {
+            Team teamB = findTeam("teamStatsB");
+            findMember("teamStats1").setAge(50);
+            findMember("teamStats2").changeTeam(teamB);
+            em.remove(findMember("teamStats4"));
+        });
+        assertStats("teamStatsA", 1, 50, 50, 50);
+        assertStats("teamStatsB", 2, 50, 20, 30);
+
+        //롤백된 변경은 반영되지 않는다
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("teamStats5", 5, findTeam("teamStatsA")));
+            status.setRollbackOnly();
+        });
+        assertStats("teamStatsA", 1, 50, 50, 50);
+
+        //벌크 update 는 전체를 다시 만든다
+        tx.executeWithoutResult(status ->
+                queryFactory.update(member).set(member.age, member.age.add(1)).where(member.username.startsWith("teamStats")).execute());
+        assertStats("teamStatsA", 1, 51, 51, 51);
+        assertStats("teamStatsB", 2, 52, 21, 31);
+
+        assertThat(teamStatsVerifier.verify()).isEmpty();
+    }
+
+    @Test
+    public void chunkedBulkUpdateRebuildsOnceAtTheEnd(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Team teamA = new Team("teamStatsA");
+            em.persist(teamA);
+            em.persist(new Member("teamStats1", 10, teamA));
+            em.persist(new Member("teamStats2", 20, teamA));
+            em.persist(new Member("teamStats3", 30, teamA));
+        });
+
+        //구간마다 커밋되지만 team_stats 는 벌크 연산이 끝날 때까지 이전 값을 유지한다
+        List<AgeStatistics> duringBulk = new ArrayList<>();
+        memberBulkRepository.update(member.username.startsWith("teamStats"),
+                clause -> clause.set(member.age, member.age.add(1)),
+                BulkOptions.chunkSize(1).progress(chunk ->
+                        duringBulk.add(teamStatsRepository.findByTeamName("teamStatsA").orElseThrow().statistics())));
+
+        assertThat(duringBulk).hasSize(3)
+                .allSatisfy(statistics -> assertThat(statistics.sum()).isEqualTo(60L));
+        assertStats("teamStatsA", 3, 63, 11, 31);
+    }
+
+    @Test
+    public void otherBulkWritesAreNotDeferred() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamStatsA");
+            Team teamB = new Team("teamStatsB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("teamStats1", 10, teamA));
+            em.persist(new Member("teamStats2", 20, teamA));
+            em.persist(new Member("teamStatsOther", 5, teamB));
+        });
+
+        //teamStatsA 의 벌크 연산이 미루는 동안 다른 스레드의 벌크 쓰기는 자기 커밋에서 다시 만든다
+        List<AgeStatistics> otherDuringBulk = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            memberBulkRepository.update(member.username.in("teamStats1", "teamStats2"),
+                    clause -> clause.set(member.age, member.age.add(1)),
+                    BulkOptions.chunkSize(1).progress(chunk -> {
+                        if (chunk.chunk() == 0) {
+                            await(executor.submit(() -> tx.executeWithoutResult(status -> queryFactory.update(member)
+                                    .set(member.age, 7)
+                                    .where(member.username.eq("teamStatsOther"))
+                                    .execute())));
+                            otherDuringBulk.add(teamStatsRepository.findByTeamName("teamStatsB").orElseThrow().statistics());
+                        }
+                    }));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(otherDuringBulk).extracting(AgeStatistics::sum).containsExactly(7L);
+        assertStats("teamStatsA", 2, 32, 11, 21);
+        assertStats("teamStatsB", 1, 7, 7, 7);
+    }
+
+    @Test
+    public void firstMembersOfANewTeamDoNotRace() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long teamId = tx.execute(status -> {
+            Team teamA = new Team("teamStatsA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+
+        //통계 행은 팀과 함께 만들어졌으므로 동시에 들어온 첫 회원들은 같은 행을 갱신만 한다
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 1; i <= 2; i++) {
+                int age = i * 10;
+                futures.add(executor.submit(() -> tx.executeWithoutResult(status ->
+                        em.persist(new Member("teamStats" + age, age, em.getReference(Team.class, teamId))))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertStats("teamStatsA", 2, 30, 10, 20);
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void assertStats(String teamName, long count, long sum, int min, int max){
+        AgeStatistics statistics = teamStatsRepository.findByTeamName(teamName).orElseThrow().statistics();
+        assertThat(statistics).isEqualTo(new AgeStatistics(count, sum, (double) sum / count, max, min));
+    }
+
+    private Team findTeam(String name){
+        return queryFactory.selectFrom(team).where(team.name.eq(name)).fetchOne();
+    }
+
+    private Member findMember(String username){
+        return queryFactory.selectFrom(member).where(member.username.eq(username)).fetchOne();
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdBatchLoaderTest {
+
+    @Test
+    public void padsToNextPowerOfTwoWithLastId() {
+        assertThat(IdBatchLoader.pad(List.of(1L))).containsExactly(1L);
+        assertThat(IdBatchLoader.pad(List.of(1L, 2L))).containsExactly(1L, 2L);
+        assertThat(IdBatchLoader.pad(List.of(1L, 2L, 3L))).containsExactly(1L, 2L, 3L, 3L);
+        assertThat(IdBatchLoader.pad(List.of(1L, 2L, 3L, 4L, 5L))).hasSize(8).endsWith(5L, 5L, 5L, 5L);
+    }
+}
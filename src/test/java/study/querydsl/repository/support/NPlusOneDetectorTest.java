@@ -0,0 +1,99 @@
+package study.querydsl.repository.support;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 다른 테스트는 WARN 으로 돌고, FAIL 은 이 테스트에서만 켠다.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "querydsl.n-plus-one.mode=FAIL",
+        "querydsl.n-plus-one.threshold=3",
+        "querydsl.n-plus-one.sample-rate=1.0"})
+class NPlusOneDetectorTest {
+
+    private static final String LOAD_TEAM =
+            "/* load study.querydsl.entity.Team */ select t1_0.team_id,t1_0.name from team t1_0 where t1_0.team_id=?";
+    private static final String SEARCH =
+            "select m1_0.id,m1_0.username from member m1_0 left join team t1_0 on t1_0.team_id=m1_0.team_id where t1_0.name=? and m1_0.age>=?";
+
+    NPlusOneDetector detector = new NPlusOneDetector(NPlusOneDetector.Mode.FAIL, 3, 1.0);
+
+    @Autowired
+    NPlusOneDetector configuredDetector;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @BeforeEach
+    public void before() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void after() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(detector);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void repeatedKeyLookupFails() {
+        for (int i = 0; i < 3; i++) {
+            detector.onStatement(LOAD_TEAM);
+        }
+        assertThatThrownBy(() -> detector.onStatement(LOAD_TEAM))
+                .isInstanceOf(NPlusOneQueryException.class)
+                .hasMessageContaining("team t1_0");
+    }
+
+    @Test
+    public void configuredDetectorFailsOnRepeatedFind() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            //없는 id 는 2차 캐시에도 없으므로 매번 키 조회 SELECT 가 나간다
+            for (long id = 1; id <= 3; id++) {
+                em.find(Team.class, -id);
+            }
+            assertThatThrownBy(() -> em.find(Team.class, -4L))
+                    .satisfies(e -> assertThat(NestedExceptionUtils.getMostSpecificCause(e))
+                            .isInstanceOf(NPlusOneQueryException.class));
+        } finally {
+            em.close();
+            TransactionSynchronizationManager.unbindResourceIfPossible(configuredDetector);
+        }
+    }
+
+    @Test
+    public void repeatedSearchIsNotKeyLookup() {
+        assertThatCode(() -> {
+            for (int i = 0; i < 10; i++) {
+                detector.onStatement(SEARCH);
+            }
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void notSampledTransactionIsIgnored() {
+        NPlusOneDetector neverSampled = new NPlusOneDetector(NPlusOneDetector.Mode.FAIL, 3, 0.0);
+        assertThatCode(() -> {
+            for (int i = 0; i < 10; i++) {
+                neverSampled.onStatement(LOAD_TEAM);
+            }
+        }).doesNotThrowAnyException();
+        TransactionSynchronizationManager.unbindResourceIfPossible(neverSampled);
+    }
+}
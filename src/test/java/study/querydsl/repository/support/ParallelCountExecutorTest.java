@@ -0,0 +1,113 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * count 는 별도 EntityManager 에서 돌아 커밋된 데이터만 보므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest(properties = {
+        "querydsl.parallel-count.enabled=true",
+        "querydsl.count-cache.enabled=false"})
+class ParallelCountExecutorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("parallelCount")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("parallelCount")).execute();
+        });
+    }
+
+    @Test
+    public void searchPageComplexWithParallelCount(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Team parallelTeam = new Team("parallelCountTeam");
+            em.persist(parallelTeam);
+            for (int i = 1; i <= 5; i++) {
+                em.persist(new Member("parallelCount" + i, i * 10, parallelTeam));
+            }
+        });
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("parallelCountTeam");
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).hasSize(2)
+                .extracting("teamName").containsOnly("parallelCountTeam");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+    }
+
+    @Test
+    public void fullQueueRunsCountOnCallerThread() throws Exception {
+        ParallelCountExecutor executor = new ParallelCountExecutor(emf, true, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            //워커 하나와 큐 한 칸을 막아 둔다
+            ParallelCountExecutor.PendingCount running = executor.submit(factory -> await(release));
+            ParallelCountExecutor.PendingCount queued = executor.submit(factory -> await(release));
+
+            AtomicReference<Thread> countThread = new AtomicReference<>();
+            ParallelCountExecutor.PendingCount callerRuns = executor.submit(factory -> {
+                countThread.set(Thread.currentThread());
+                return 7L;
+            });
+
+            assertThat(countThread.get()).isSameAs(Thread.currentThread());
+            assertThat(callerRuns.getAsLong()).isEqualTo(7L);
+            release.countDown();
+            assertThat(running.getAsLong()).isZero();
+            assertThat(queued.getAsLong()).isZero();
+        } finally {
+            release.countDown();
+            executor.destroy();
+        }
+    }
+
+    private static Long await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,127 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class QuerySchedulerTest {
+
+    private QueryScheduler scheduler(Duration maxWait) {
+        return new QueryScheduler(true, 1, 1, maxWait, 1, 1, maxWait, 1, 1, maxWait, 1, 1, maxWait);
+    }
+
+    @Test
+    public void fullQueueIsRejectedFast() throws Exception {
+        QueryScheduler scheduler = scheduler(Duration.ofSeconds(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scheduler.bindTo(registry);
+        Gauge countQueue = registry.get("query.scheduler.queue.depth").tag("class", "count").gauge();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> holder = executor.submit(() -> scheduler.run(QueryClass.COUNT, () -> {
+                running.countDown();
+                await(release);
+                return "first";
+            }));
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> waiter = executor.submit(() -> scheduler.run(QueryClass.COUNT, () -> "second"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (countQueue.value() == 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertThat(countQueue.value()).isEqualTo(1);
+
+            // 대기열(max-waiters 1)이 찼으므로 기다리지 않고 거절된다
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> scheduler.run(QueryClass.COUNT, () -> "third"))
+                    .isInstanceOf(QueryRejectedException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+
+            // 다른 종류는 영향을 받지 않는다
+            assertThat(scheduler.run(QueryClass.CONTENT, () -> "content")).isEqualTo("content");
+
+            release.countDown();
+            assertThat(holder.get()).isEqualTo("first");
+            assertThat(waiter.get()).isEqualTo("second");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waitIsBoundedByMaxWait() {
+        QueryScheduler scheduler = scheduler(Duration.ofMillis(50));
+        try (Stream<Integer> export = scheduler.stream(QueryClass.EXPORT, () -> Stream.of(1, 2, 3))) {
+            assertThatThrownBy(() -> scheduler.stream(QueryClass.EXPORT, () -> Stream.of(4)))
+                    .isInstanceOf(QueryRejectedException.class)
+                    .extracting("queryClass").isEqualTo(QueryClass.EXPORT);
+            assertThat(export.count()).isEqualTo(3);
+        }
+        // close 하면 자리를 돌려준다
+        try (Stream<Integer> export = scheduler.stream(QueryClass.EXPORT, () -> Stream.of(4))) {
+            assertThat(export.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void nestedCallOfSameClassDoesNotDeadlock() {
+        QueryScheduler scheduler = scheduler(Duration.ofMillis(50));
+        String result = scheduler.run(QueryClass.CONTENT, () -> scheduler.run(QueryClass.CONTENT, () -> "nested"));
+        assertThat(result).isEqualTo("nested");
+    }
+
+    @Test
+    public void maxWaitIsPerClass() {
+        QueryScheduler scheduler = new QueryScheduler(true, 1, 1, Duration.ofSeconds(5), 1, 1, Duration.ofSeconds(5),
+                1, 1, Duration.ofSeconds(5), 1, 1, Duration.ofMillis(50));
+        try (Stream<Integer> export = scheduler.stream(QueryClass.EXPORT, () -> Stream.of(1))) {
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> scheduler.stream(QueryClass.EXPORT, () -> Stream.of(2)))
+                    .isInstanceOf(QueryRejectedException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+            assertThat(export.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void rejectionIsServiceUnavailable() throws Exception {
+        MockMvcBuilders.standaloneSetup(new RejectingController()).build()
+                .perform(get("/rejected"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @RestController
+    static class RejectingController {
+        @GetMapping("/rejected")
+        public String rejected() {
+            throw new QueryRejectedException(QueryClass.COUNT, "COUNT query queue is full");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RepositoryMetricsAspectTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RepositoryMetricsAspect aspect = new RepositoryMetricsAspect(new RepositoryMetrics(registry));
+
+    @Test
+    public void recordsTimerAndSummariesPerShape() throws Throwable {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        ProceedingJoinPoint joinPoint = joinPoint("search", condition);
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            QueryStatistics.statementPrepared();
+            QueryStatistics.statementPrepared();
+            QueryStatistics.entityLoaded();
+            return List.of("member1", "member2", "member3");
+        });
+
+        assertThat(aspect.record(joinPoint)).isEqualTo(List.of("member1", "member2", "member3"));
+
+        Timer timer = registry.get("repository.call")
+                .tags("repository", "FakeRepository", "method", "search", "shape", "teamName", "outcome", "success")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(summary("repository.call.sql.statements").totalAmount()).isEqualTo(2);
+        assertThat(summary("repository.call.entities.loaded").totalAmount()).isEqualTo(1);
+        assertThat(summary("repository.call.rows").totalAmount()).isEqualTo(3);
+        //태그 조합마다 버킷이 늘어나지 않도록 히스토그램은 기본으로 만들지 않는다
+        assertThat(timer.takeSnapshot().histogramCounts()).isEmpty();
+    }
+
+    @Test
+    public void failureIsTaggedWithExceptionAndRethrown() throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint("findAll");
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> aspect.record(joinPoint)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("repository.call")
+                .tags("method", "findAll", "shape", RepositoryMetrics.NO_CONDITION, "outcome", "IllegalStateException")
+                .timer().count()).isEqualTo(1);
+        //행 수를 알 수 없으면 rows 는 기록하지 않는다
+        assertThat(registry.find("repository.call.rows").tags("method", "findAll").summary()).isNull();
+    }
+
+    private DistributionSummary summary(String name) {
+        return registry.get(name).tags("method", "search", "shape", "teamName").summary();
+    }
+
+    private static ProceedingJoinPoint joinPoint(String method, Object... args) {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        Signature signature = mock(Signature.class);
+        when(signature.getName()).thenReturn(method);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new FakeRepository());
+        when(joinPoint.getArgs()).thenReturn(args);
+        return joinPoint;
+    }
+
+    static class FakeRepository {
+    }
+}
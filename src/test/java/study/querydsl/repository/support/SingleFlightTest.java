@@ -0,0 +1,96 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("teamA", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return 42;
+        })));
+        started.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("teamA", () -> {
+                executions.incrementAndGet();
+                return -1;
+            })));
+        }
+        while (singleFlight.sharedCount() < 3) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(singleFlight.executionCount()).isEqualTo(1);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void failureIsNotCached() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> singleFlight.execute("teamA", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(singleFlight.execute("teamA", () -> 1)).isEqualTo(1);
+    }
+
+    @Test
+    public void waiterRunsItselfAfterMaxWait() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<Integer> slow = executor.submit(() -> singleFlight.execute("teamA", () -> {
+            started.countDown();
+            await(release);
+            return 42;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThat(singleFlight.execute("teamA", () -> 7)).isEqualTo(7);
+        assertThat(singleFlight.timedOutCount()).isEqualTo(1);
+        assertThat(singleFlight.sharedCount()).isZero();
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        executor.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 비동기 작업은 다른 스레드의 트랜잭션에서 돌기 때문에 데이터를 커밋하고 직접 정리한다.
+ */
+@SpringBootTest
+class AsyncMemberSearchServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    AsyncMemberSearchService asyncMemberSearchService;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("async")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("async")).execute();
+        });
+    }
+
+    @Test
+    public void concurrentSearchesComplete(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Team asyncTeam = new Team("asyncTeam");
+            em.persist(asyncTeam);
+            for (int i = 0; i < 30; i++) {
+                em.persist(new Member("async" + i, i, asyncTeam));
+            }
+        });
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("asyncTeam");
+        condition.setAgeGoe(10);
+
+        // 커넥션 풀보다 많은 호출도 자리를 기다렸다가 모두 끝난다
+        List<CompletableFuture<Page<MemberTeamDto>>> pages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            pages.add(asyncMemberSearchService.searchPageComplex(condition, PageRequest.of(0, 5)));
+        }
+        for (CompletableFuture<Page<MemberTeamDto>> page : pages) {
+            assertThat(page.join().getTotalElements()).isEqualTo(20);
+            assertThat(page.join().getContent()).hasSize(5);
+        }
+
+        assertThat(asyncMemberSearchService.search(condition).join()).hasSize(20);
+        assertThat(asyncMemberSearchService.searchPageSimple(condition, PageRequest.of(3, 5)).join().getContent()).hasSize(5);
+    }
+}
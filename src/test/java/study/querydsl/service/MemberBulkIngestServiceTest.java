@@ -0,0 +1,112 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 적재는 chunk 마다 커밋하므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+class MemberBulkIngestServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    MemberBulkIngestService ingestService;
+
+    @BeforeEach
+    public void before(){
+        ingestService = new MemberBulkIngestService(em, transactionManager, 2);
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                queryFactory.delete(member).where(member.username.startsWith("ingest")).execute());
+    }
+
+    @Test
+    public void ingestInChunks(){
+        IngestResult result = ingestService.ingest(members(5).stream());
+
+        assertThat(result.rows()).isEqualTo(5);
+        assertThat(result.rowsPerSecond()).isPositive();
+        assertThat(countIngested()).isEqualTo(5);
+    }
+
+    @Test
+    public void failedChunkRollsBackOnlyItself(){
+        Iterator<Member> failing = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Member next() {
+                if (next == 3) {
+                    throw new IllegalStateException("source failed");
+                }
+                return new Member("ingest" + next++, 20);
+            }
+        };
+
+        assertThatThrownBy(() -> ingestService.ingest(() -> failing))
+                .isInstanceOf(IllegalStateException.class);
+        //첫 chunk(2건)는 이미 커밋되었고 실패한 chunk 만 롤백된다
+        assertThat(countIngested()).isEqualTo(2);
+    }
+
+    @Test
+    public void callerTransactionKeepsItsEntities(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Member own = new Member("ingestOwn", 10);
+            em.persist(own);
+
+            assertThat(ingestService.ingest(members(3)).rows()).isEqualTo(3);
+
+            assertThat(em.contains(own)).isTrue();
+            status.setRollbackOnly();
+        });
+        //호출 측 트랜잭션에 참여했으므로 함께 롤백된다
+        assertThat(countIngested()).isZero();
+    }
+
+    private static List<Member> members(int count){
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Member("ingest" + i, 20))
+                .toList();
+    }
+
+    private long countIngested(){
+        return queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.username.startsWith("ingest"))
+                .fetchOne();
+    }
+}
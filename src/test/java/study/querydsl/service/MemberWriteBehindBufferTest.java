@@ -0,0 +1,214 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.dto.AgeStatistics;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberAgeIndex;
+import study.querydsl.repository.TeamStatsRepository;
+import study.querydsl.repository.support.MemberRowWriteListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 버퍼는 별도 트랜잭션으로 커밋하므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "querydsl.age-index.enabled=true")
+class MemberWriteBehindBufferTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectProvider<MemberRowWriteListener> rowWriteListeners;
+
+    @Autowired
+    MemberWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    MemberAgeIndex memberAgeIndex;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanUp(){
+        writeBehindBuffer.flush();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("writeBehind")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("writeBehind")).execute();
+        });
+    }
+
+    @Test
+    public void repeatedUpdatesAreCoalesced(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> {
+            Member saved = new Member("writeBehind1", 10);
+            em.persist(saved);
+            return saved.getId();
+        });
+
+        for (int age = 11; age <= 20; age++) {
+            writeBehindBuffer.updateAge(id, age);
+        }
+        writeBehindBuffer.updateUsername(id, "writeBehindRenamed");
+        assertThat(writeBehindBuffer.pendingCount()).isEqualTo(1);
+
+        assertThat(writeBehindBuffer.flush()).isEqualTo(1);
+        assertThat(writeBehindBuffer.pendingCount()).isZero();
+
+        Member found = tx.execute(status -> em.find(Member.class, id));
+        assertThat(found.getAge()).isEqualTo(20);
+        assertThat(found.getUsername()).isEqualTo("writeBehindRenamed");
+    }
+
+    @Test
+    public void flushUpdatesDerivedDataOnlyForChangedMembers(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> {
+            Team writeBehindTeam = new Team("writeBehindTeam");
+            em.persist(writeBehindTeam);
+            em.persist(new Member("writeBehind1", 10, writeBehindTeam));
+            Member saved = new Member("writeBehind2", 20, writeBehindTeam);
+            em.persist(saved);
+            return saved.getId();
+        });
+        assertThat(memberAgeIndex.countByAge(977, 977)).hasValue(0);
+        double rebuilds = meterRegistry.get("member.age.index.rebuilds").functionCounter().count();
+
+        writeBehindBuffer.updateAge(id, 977);
+        writeBehindBuffer.flush();
+
+        //인덱스를 다시 만들지 않고 바뀐 회원만 옮긴다
+        assertThat(memberAgeIndex.countByAge(977, 977)).hasValue(1);
+        assertThat(meterRegistry.get("member.age.index.rebuilds").functionCounter().count()).isEqualTo(rebuilds);
+        //team_stats 는 그 팀의 델타만 반영한다
+        assertThat(teamStatsRepository.findByTeamName("writeBehindTeam").orElseThrow().statistics())
+                .isEqualTo(new AgeStatistics(2, 987L, 987 / 2.0, 977, 10));
+    }
+
+    @Test
+    public void fullBufferRejectsNewMembers(){
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(jdbcTemplate, transactionManager, emf, rowWriteListeners,
+                true, 1, 2, 500, 3, Duration.ofHours(1), Duration.ofMillis(50));
+        try {
+            buffer.updateAge(-1L, 1);
+            buffer.updateAge(-2L, 1);
+            // 이미 버퍼에 있는 회원은 자리를 쓰지 않는다
+            buffer.updateAge(-1L, 2);
+
+            assertThatThrownBy(() -> buffer.updateAge(-3L, 1))
+                    .isInstanceOf(RejectedExecutionException.class);
+
+            buffer.flush();
+            buffer.updateAge(-3L, 1);
+            assertThat(buffer.pendingCount()).isEqualTo(1);
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    @Test
+    public void failingRowIsIsolatedAndDroppedAfterMaxAttempts(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Long> ids = tx.execute(status -> {
+            Member good = new Member("writeBehindGood", 10);
+            Member bad = new Member("writeBehindBad", 10);
+            em.persist(good);
+            em.persist(bad);
+            return List.of(good.getId(), bad.getId());
+        });
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(jdbcTemplate, transactionManager, emf, rowWriteListeners,
+                true, 1, 10, 500, 2, Duration.ofHours(1), Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        buffer.bindTo(registry);
+        try {
+            buffer.updateAge(ids.get(0), 11);
+            //컬럼 길이를 넘어 항상 실패하는 변경
+            buffer.updateUsername(ids.get(1), "writeBehind" + "x".repeat(300));
+
+            //성공한 회원은 반영되고 실패한 회원만 버퍼에 남는다
+            assertThat(buffer.flush()).isEqualTo(1);
+            assertThat(buffer.pendingCount()).isEqualTo(1);
+            //이미 커밋된 변경은 다시 반영하지 않는다 (version 이 한 번만 오른다)
+            assertThat(buffer.flush()).isZero();
+            assertThat(buffer.pendingCount()).isZero();
+            assertThat(registry.get("member.write.behind.dropped").functionCounter().count()).isEqualTo(1);
+
+            Member good = tx.execute(status -> em.find(Member.class, ids.get(0)));
+            assertThat(good.getAge()).isEqualTo(11);
+            assertThat(good.getVersion()).isEqualTo(1);
+            //버려진 뒤에는 같은 버퍼로 다른 변경을 계속 받을 수 있다
+            buffer.updateAge(ids.get(1), 12);
+            assertThat(buffer.flush()).isEqualTo(1);
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    @Test
+    public void flushInsideCallerTransactionCommitsIndependently(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> {
+            Member saved = new Member("writeBehindTx", 10);
+            em.persist(saved);
+            return saved.getId();
+        });
+        writeBehindBuffer.updateAge(id, 33);
+
+        tx.executeWithoutResult(status -> {
+            writeBehindBuffer.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(tx.execute(status -> em.find(Member.class, id)).getAge()).isEqualTo(33);
+    }
+
+    @Test
+    public void updatesAfterShutdownAreRejected(){
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(jdbcTemplate, transactionManager, emf, rowWriteListeners,
+                true, 1, 2, 500, 3, Duration.ofHours(1), Duration.ofMillis(50));
+        buffer.shutdown();
+
+        assertThatThrownBy(() -> buffer.updateAge(-1L, 1))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(buffer.pendingCount()).isZero();
+    }
+}
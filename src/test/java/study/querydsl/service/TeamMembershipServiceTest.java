@@ -0,0 +1,107 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 이동마다 별도 트랜잭션으로 커밋하므로 롤백 대신 직접 정리한다.
+ */
+@SpringBootTest
+class TeamMembershipServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TeamMembershipService teamMembershipService;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("membership")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("membership")).execute();
+        });
+    }
+
+    @Test
+    public void moveUpdatesTeamAndVersion(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("membershipA");
+            Team teamB = new Team("membershipB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member saved = new Member("membership1", 10, teamA);
+            em.persist(saved);
+            return new Long[]{saved.getId(), teamB.getId()};
+        });
+
+        assertThat(teamMembershipService.moveTo(ids[0], ids[1])).isEqualTo(1);
+
+        tx.executeWithoutResult(status -> {
+            Member moved = em.find(Member.class, ids[0]);
+            assertThat(moved.getTeam().getName()).isEqualTo("membershipB");
+            assertThat(moved.getVersion()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    public void concurrentMovesAreRetried() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Long> teamIds = new ArrayList<>();
+        Long memberId = tx.execute(status -> {
+            for (int i = 0; i < 4; i++) {
+                Team target = new Team("membership" + i);
+                em.persist(target);
+                teamIds.add(target.getId());
+            }
+            Member saved = new Member("membershipHot", 10);
+            em.persist(saved);
+            return saved.getId();
+        });
+
+        // 충돌한 시도마다 다른 스레드 하나는 성공하므로 4 개 스레드는 max-attempts(5) 안에 끝난다
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (Long teamId : teamIds) {
+                results.add(executor.submit(() -> teamMembershipService.moveTo(memberId, teamId)));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get()).isPositive();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        tx.executeWithoutResult(status -> {
+            Member moved = em.find(Member.class, memberId);
+            assertThat(teamIds).contains(moved.getTeam().getId());
+            assertThat(moved.getVersion()).isEqualTo(4L);
+        });
+    }
+}